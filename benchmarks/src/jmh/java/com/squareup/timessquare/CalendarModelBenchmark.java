@@ -0,0 +1,188 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.Calendar.DATE;
+import static java.util.Calendar.YEAR;
+
+/**
+ * Times the model work behind {@link CalendarPickerView}: building the model in init(), building
+ * a month's cells, selecting in each {@link CalendarModel.Mode}, highlighting and setting closed
+ * days.  Each runs over a calendar of {@link #years} years with {@link #closedDays} closed days.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CalendarModelBenchmark {
+  /** Number of distinct dates the select and highlight benchmarks cycle through. */
+  private static final int DATE_POOL_SIZE = 64;
+  /** Invocations per batch of the benchmarks that each use up a fresh model. */
+  private static final int FRESH_MODELS = 50;
+  private static final Locale LOCALE = Locale.US;
+  private static final CalendarModel.SelectableFilter ALL_SELECTABLE =
+      new CalendarModel.SelectableFilter() {
+        @Override public boolean isDateSelectable(Date date) {
+          return true;
+        }
+      };
+
+  @Param({ "1", "5", "50" }) public int years;
+  @Param({ "0", "100", "5000" }) public int closedDays;
+
+  Date minDate;
+  Date maxDate;
+  List<Date> closedDates;
+  /** Dates spread evenly over the calendar, for selecting and highlighting. */
+  Date[] datePool;
+
+  private CalendarModel cellsModel;
+  private MonthDescriptor middleMonth;
+  private Calendar middleMonthStart;
+  private CalendarModel singleModel;
+  private CalendarModel multipleModel;
+  private CalendarModel rangeModel;
+  private int next;
+
+  @Setup public void setUp() {
+    Calendar cal = Calendar.getInstance(LOCALE);
+    CalendarModel.setMidnight(cal);
+    minDate = cal.getTime();
+    cal.add(YEAR, years);
+    maxDate = cal.getTime();
+    int days = (int) ((maxDate.getTime() - minDate.getTime()) / DayIndex.MILLIS_PER_DAY);
+
+    closedDates = spread(Math.min(closedDays, days), days);
+    List<Date> pool = spread(DATE_POOL_SIZE, days);
+    datePool = pool.toArray(new Date[pool.size()]);
+
+    cellsModel = newModel();
+    middleMonth = cellsModel.getMonth(cellsModel.getMonthCount() / 2);
+    middleMonthStart = Calendar.getInstance(LOCALE);
+    middleMonthStart.setTime(middleMonth.getDate());
+    singleModel = newModel(CalendarModel.Mode.SINGLE);
+    multipleModel = newModel(CalendarModel.Mode.MULTIPLE);
+    rangeModel = newModel(CalendarModel.Mode.RANGE);
+  }
+
+  /** Returns {@code count} dates spread evenly over the first {@code days} days. */
+  private List<Date> spread(int count, int days) {
+    List<Date> dates = new ArrayList<Date>(count);
+    Calendar cal = Calendar.getInstance(LOCALE);
+    for (int i = 0; i < count; i++) {
+      cal.setTime(minDate);
+      cal.add(DATE, (int) ((long) i * days / count));
+      dates.add(cal.getTime());
+    }
+    return dates;
+  }
+
+  CalendarModel newModel() {
+    return new CalendarModel(minDate, maxDate, closedDates, LOCALE, "MMMM yyyy", "EEE",
+        ALL_SELECTABLE);
+  }
+
+  private CalendarModel newModel(CalendarModel.Mode mode) {
+    CalendarModel model = newModel();
+    model.selectionMode = mode;
+    return model;
+  }
+
+  @Benchmark public CalendarModel init() {
+    return newModel();
+  }
+
+  @Benchmark public List<List<MonthCellDescriptor>> getMonthCells() {
+    return cellsModel.getMonthCells(middleMonth, middleMonthStart);
+  }
+
+  @Benchmark public boolean selectDateSingle() {
+    return select(singleModel);
+  }
+
+  @Benchmark public boolean selectDateMultiple() {
+    return select(multipleModel);
+  }
+
+  @Benchmark public boolean selectDateRange() {
+    return select(rangeModel);
+  }
+
+  /** Selects the next pooled date the way {@link CalendarPickerView#selectDate(Date)} does. */
+  private boolean select(CalendarModel model) {
+    Date date = datePool[next++ % DATE_POOL_SIZE];
+    model.validateDate(date);
+    CalendarModel.MonthCellWithMonthIndex monthCell = model.getMonthCellWithIndexByDate(date);
+    boolean selected = monthCell != null && model.isSelectable(date)
+        && model.doSelectDate(date, monthCell.cell);
+    model.dirtyMonths.clear();
+    return selected;
+  }
+
+  @Benchmark @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 5, batchSize = FRESH_MODELS)
+  @Measurement(iterations = 5, batchSize = FRESH_MODELS)
+  public CalendarModel highlightDates(FreshModels fresh) {
+    CalendarModel model = fresh.next();
+    model.highlightDates(fresh.millis, fresh.millis.length);
+    return model;
+  }
+
+  @Benchmark @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 5, batchSize = FRESH_MODELS)
+  @Measurement(iterations = 5, batchSize = FRESH_MODELS)
+  public int selectDatesMultiple(FreshModels fresh) {
+    CalendarModel model = fresh.next();
+    model.selectionMode = CalendarModel.Mode.MULTIPLE;
+    return model.selectDates(fresh.millis, fresh.millis.length);
+  }
+
+  @Benchmark public CalendarModel setDaysClosedDates() {
+    cellsModel.setDaysClosedDates(closedDates);
+    return cellsModel;
+  }
+
+  /**
+   * Models with nothing selected or highlighted yet, built before each iteration.  Every
+   * invocation uses one up, so the benchmarks taking them run in batches of
+   * {@link #FRESH_MODELS} invocations and report the time of a whole batch, without per-invocation
+   * setup skewing microsecond-scale timings.
+   */
+  @State(Scope.Thread)
+  public static class FreshModels {
+    final CalendarModel[] models = new CalendarModel[FRESH_MODELS];
+    long[] millis;
+    private int next;
+
+    @Setup(Level.Iteration) public void setUp(CalendarModelBenchmark benchmark) {
+      for (int i = 0; i < models.length; i++) {
+        models[i] = benchmark.newModel();
+      }
+      next = 0;
+      millis = new long[benchmark.datePool.length];
+      for (int i = 0; i < millis.length; i++) {
+        millis[i] = benchmark.datePool[i].getTime();
+      }
+    }
+
+    CalendarModel next() {
+      return models[next++];
+    }
+  }
+}
@@ -0,0 +1,95 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import java.text.DateFormat;
+import java.text.DateFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Month titles, weekday header names and full dates for one locale, pair of patterns and default
+ * time zone.  Shared by every picker in the process through {@link #get}, so re-initializing a
+ * picker or inflating a month formats nothing that was formatted recently.  Thread safe.
+ */
+final class CalendarLabels {
+  /** Most month titles kept per instance; the least recently used are formatted again. */
+  static final int MAX_MONTH_LABELS = 120;
+
+  private static final Map<String, CalendarLabels> CACHE = new HashMap<String, CalendarLabels>();
+
+  private final SimpleDateFormat monthNameFormat;
+  private final DateFormat fullDateFormat;
+  private final String[] weekdayNames;
+  /** Month titles keyed by {@code year * 12 + month}. */
+  private final MonthCache<String> monthLabels = new MonthCache<String>(MAX_MONTH_LABELS);
+
+  /**
+   * Returns the labels for {@code locale} and the patterns.  The formatters use the default time
+   * zone they were created in, so a change of default gets its own instance.
+   */
+  static CalendarLabels get(Locale locale, String monthNamePattern, String dayNamePattern) {
+    String key = locale + "\n" + monthNamePattern + "\n" + dayNamePattern + "\n"
+        + TimeZone.getDefault().getID();
+    synchronized (CACHE) {
+      CalendarLabels labels = CACHE.get(key);
+      if (labels == null) {
+        labels = new CalendarLabels(locale, monthNamePattern, dayNamePattern);
+        CACHE.put(key, labels);
+      }
+      return labels;
+    }
+  }
+
+  private CalendarLabels(Locale locale, String monthNamePattern, String dayNamePattern) {
+    monthNameFormat = new SimpleDateFormat(monthNamePattern, locale);
+    fullDateFormat = DateFormat.getDateInstance(DateFormat.MEDIUM, locale);
+    weekdayNames = weekdayNames(locale, new SimpleDateFormat(dayNamePattern, locale));
+  }
+
+  /**
+   * Returns the weekday names in the order of a week row, starting with the locale's first day of
+   * the week.  Callers must not modify the array.
+   */
+  String[] getWeekdayNames() {
+    return weekdayNames;
+  }
+
+  /** Returns the title of the month holding {@code date}, a day of {@code year}'s {@code month}. */
+  synchronized String getMonthLabel(int year, int month, Date date) {
+    Integer key = year * 12 + month;
+    String label = monthLabels.get(key);
+    if (label == null) {
+      label = monthNameFormat.format(date);
+      monthLabels.put(key, label);
+    }
+    return label;
+  }
+
+  synchronized String formatFullDate(Date date) {
+    return fullDateFormat.format(date);
+  }
+
+  /**
+   * Formats the weekday names for a week row with {@code symbols} in place of the locale's own,
+   * e.g. after {@link DateFormatSymbols#setShortWeekdays}.
+   */
+  static String[] weekdayNames(Locale locale, String dayNamePattern, DateFormatSymbols symbols) {
+    return weekdayNames(locale, new SimpleDateFormat(dayNamePattern, symbols));
+  }
+
+  private static String[] weekdayNames(Locale locale, DateFormat weekdayNameFormat) {
+    Calendar weekday = Calendar.getInstance(locale);
+    int firstDayOfWeek = weekday.getFirstDayOfWeek();
+    String[] names = new String[7];
+    for (int offset = 0; offset < 7; offset++) {
+      weekday.set(Calendar.DAY_OF_WEEK, firstDayOfWeek + offset);
+      names[offset] = weekdayNameFormat.format(weekday.getTime());
+    }
+    return names;
+  }
+}
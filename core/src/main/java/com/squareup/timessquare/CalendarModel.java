@@ -0,0 +1,1026 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import java.text.DateFormatSymbols;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static java.util.Calendar.DATE;
+import static java.util.Calendar.DAY_OF_MONTH;
+import static java.util.Calendar.DAY_OF_WEEK;
+import static java.util.Calendar.HOUR_OF_DAY;
+import static java.util.Calendar.MILLISECOND;
+import static java.util.Calendar.MINUTE;
+import static java.util.Calendar.MONTH;
+import static java.util.Calendar.SECOND;
+import static java.util.Calendar.YEAR;
+
+/**
+ * The months, cells and selection state shown by a {@code CalendarPickerView}.  Plain Java with
+ * no Android dependencies, so it can be built on a background thread and handed to the view once
+ * it's ready.  Not thread safe: after the hand-off only the main thread may touch it.
+ * <p>
+ * Month descriptors and cells are built lazily and at most {@link #MAX_RESIDENT_MONTHS} of them
+ * are kept; everything else is rebuilt from the selection, highlight and closed-day state when
+ * it's next asked for.  Mutations flag the months they touch in {@link #dirtyMonths}.
+ */
+final class CalendarModel {
+  /**
+   * Number of months whose descriptors and cells are kept built at any one time.  Months outside
+   * of this window are rebuilt from the selection/highlight state the next time they're bound.
+   */
+  static final int MAX_RESIDENT_MONTHS = 12;
+  /** Number of months whose availability is kept once loaded; see {@link #setAvailability}. */
+  static final int MAX_AVAILABILITY_MONTHS = 36;
+  /** Availability mask with every day of the month set. */
+  private static final int ALL_DAYS = -1;
+  /** Layout version stored first by {@link #saveState()}. */
+  private static final int STATE_VERSION = 1;
+  /** Epoch day placeholder for "no day". */
+  static final int NO_DAY = Integer.MIN_VALUE;
+
+  /** Selection behavior; mirrors {@code CalendarPickerView.SelectionMode}. */
+  enum Mode {
+    SINGLE, MULTIPLE, RANGE
+  }
+
+  /** Decides whether a date may be selected; backs CalendarPickerView.DateSelectableFilter. */
+  interface SelectableFilter {
+    boolean isDateSelectable(Date date);
+  }
+
+  final Locale locale;
+  final Calendar today;
+  final Calendar minCal;
+  final Calendar maxCal;
+  private final Calendar monthCounter;
+  final CalendarLabels labels;
+  /** Weekday header names in week order; the shared {@link #labels} ones unless overridden. */
+  String[] weekdayNames;
+  private final String dayNamePattern;
+  private DayIndex dayIndex;
+  private final int monthCount;
+  private final MonthCache<MonthDescriptor> months =
+      new MonthCache<MonthDescriptor>(MAX_RESIDENT_MONTHS);
+  private final MonthCache<List<List<MonthCellDescriptor>>> cells =
+      new MonthCache<List<List<MonthCellDescriptor>>>(MAX_RESIDENT_MONTHS);
+  /** Months whose cells changed since the view last bound them. */
+  final BitSet dirtyMonths = new BitSet();
+  private final DaySet daysClosed = new DaySet();
+  /** Epoch days of the range currently shown in {@link Mode#RANGE}. */
+  private int rangeFirstDay = NO_DAY;
+  private int rangeLastDay = NO_DAY;
+  /**
+   * Epoch days of every selected date: the only selection store in {@link Mode#MULTIPLE}, and the
+   * chosen date or range endpoints otherwise.
+   */
+  private final DaySet selectedDays = new DaySet();
+  /** Epoch days of highlighted dates; cells pick them up when their month is built. */
+  private final DaySet highlightedDays = new DaySet();
+  /** Highlight category code of each day; cells pick them up when their month is built. */
+  private final DayCategories highlightCategories = new DayCategories();
+  /** Selected cells in {@link Mode#SINGLE} and {@link Mode#RANGE}; at most two. */
+  final List<MonthCellDescriptor> selectedCells = new ArrayList<MonthCellDescriptor>();
+  /** Dates of {@link #selectedCells}. */
+  final List<Calendar> selectedCals = new ArrayList<Calendar>();
+  /**
+   * Available days of each loaded month, keyed by {@code year * 12 + month}: bit {@code n - 1}
+   * stands for day {@code n}.  Only consulted while {@link #availabilityRequired} is set.
+   */
+  private final MonthCache<Integer> availability =
+      new MonthCache<Integer>(MAX_AVAILABILITY_MONTHS);
+  /** Whether a day needs its month's availability loaded, and to be in it, to be selectable. */
+  private boolean availabilityRequired;
+  /** Days the filter has been consulted about, and those of them it accepted. */
+  private final DaySet filterChecked = new DaySet();
+  private final DaySet filterPassed = new DaySet();
+  /** Week rows in all months before each index, up to {@link #monthCount}; built on first use. */
+  private int[] weekRowsBefore;
+  Mode selectionMode = Mode.SINGLE;
+  SelectableFilter filter;
+
+  /**
+   * Callers are expected to have validated the arguments; see
+   * {@code CalendarPickerView.init()}.
+   *
+   * @param minDate Earliest selectable date, inclusive.
+   * @param maxDate Latest selectable date, exclusive.
+   */
+  CalendarModel(Date minDate, Date maxDate, Collection<Date> daysClosedDates, Locale locale,
+      String monthNamePattern, String dayNamePattern, SelectableFilter filter) {
+    this.locale = locale;
+    this.dayNamePattern = dayNamePattern;
+    this.filter = filter;
+    today = Calendar.getInstance(locale);
+    minCal = Calendar.getInstance(locale);
+    maxCal = Calendar.getInstance(locale);
+    monthCounter = Calendar.getInstance(locale);
+    labels = CalendarLabels.get(locale, monthNamePattern, dayNamePattern);
+    weekdayNames = labels.getWeekdayNames();
+
+    minCal.setTime(minDate);
+    maxCal.setTime(maxDate);
+    setMidnight(minCal);
+    setMidnight(maxCal);
+
+    // maxDate is exclusive: bump back to the previous day so if maxDate is the first of a month,
+    // we don't accidentally include that month in the view.
+    maxCal.add(MINUTE, -1);
+
+    // Months between minCal and maxCal (inclusive) are built lazily as they're bound.
+    dayIndex = new DayIndex(minCal);
+    monthCount = dayIndex.monthIndex(maxCal) + 1;
+
+    setDaysClosedDates(daysClosedDates);
+  }
+
+  int getMonthCount() {
+    return monthCount;
+  }
+
+  /**
+   * Packs everything needed to rebuild this model, except the filter and availability, into epoch
+   * days: the layout version, the first day shown and the day after the last, the selection mode,
+   * then the closed, highlighted and selected days as {@code first, last} runs and the highlight
+   * categories as {@code first, last, category} runs.  Each list of runs is preceded by its length.
+   */
+  int[] saveState() {
+    int[][] sections = {
+        daysClosed.toRuns(), highlightedDays.toRuns(), highlightCategories.toRuns(),
+        selectedDays.toRuns()
+    };
+    int size = 4;
+    for (int[] section : sections) {
+      size += 1 + section.length;
+    }
+    int[] state = new int[size];
+    state[0] = STATE_VERSION;
+    state[1] = dayIndex.epochDay(minCal);
+    state[2] = dayIndex.epochDay(maxCal) + 1;
+    state[3] = selectionMode.ordinal();
+    int i = 4;
+    for (int[] section : sections) {
+      state[i++] = section.length;
+      System.arraycopy(section, 0, state, i, section.length);
+      i += section.length;
+    }
+    return state;
+  }
+
+  /**
+   * Rebuilds a model from {@link #saveState()}.  Nothing is formatted or built apart from the
+   * months holding a {@link Mode#SINGLE} or {@link Mode#RANGE} selection; the rest are built when
+   * they're shown.
+   */
+  static CalendarModel restoreState(int[] state, Locale locale, String monthNamePattern,
+      String dayNamePattern, SelectableFilter filter) {
+    if (state == null || state.length < 4 || state[0] != STATE_VERSION) {
+      throw new IllegalArgumentException("Not a saved calendar state.");
+    }
+    Calendar cal = Calendar.getInstance(locale);
+    Date minDate = new Date(startOfDay(state[1], cal));
+    Date maxDate = new Date(startOfDay(state[2], cal));
+    CalendarModel model = new CalendarModel(minDate, maxDate, Collections.<Date>emptyList(),
+        locale, monthNamePattern, dayNamePattern, filter);
+    model.selectionMode = Mode.values()[state[3]];
+
+    int i = 4;
+    for (int end = i + 1 + state[i++]; i < end; i += 2) {
+      model.daysClosed.addRange(state[i], state[i + 1]);
+    }
+    for (int end = i + 1 + state[i++]; i < end; i += 2) {
+      model.highlightedDays.addRange(state[i], state[i + 1]);
+    }
+    for (int end = i + 1 + state[i++]; i < end; i += 3) {
+      model.highlightCategories.setRange(state[i], state[i + 1], state[i + 2]);
+    }
+    // Selection goes last so that the cells it builds see everything else.
+    for (int end = i + 1 + state[i++]; i < end; i += 2) {
+      if (model.selectionMode == Mode.MULTIPLE) {
+        model.selectedDays.addRange(state[i], state[i + 1]);
+      } else {
+        for (int day = state[i]; day <= state[i + 1]; day++) {
+          model.restoreSelectedDay(day, cal);
+        }
+      }
+    }
+    return model;
+  }
+
+  private void restoreSelectedDay(int epochDay, Calendar cal) {
+    int index = dayIndex.monthIndex(epochDay);
+    if (index < 0 || index >= monthCount) {
+      return;
+    }
+    MonthCellDescriptor cell =
+        getMonthCells(index).get(dayIndex.week(epochDay)).get(dayIndex.column(epochDay));
+    doSelectDate(new Date(startOfDay(epochDay, cal)), cell);
+  }
+
+  /** Replaces the short weekday names used for the day-of-week headers. */
+  void setShortWeekdays(String[] newShortWeekdays) {
+    DateFormatSymbols symbols = new DateFormatSymbols(locale);
+    symbols.setShortWeekdays(newShortWeekdays);
+    weekdayNames = CalendarLabels.weekdayNames(locale, dayNamePattern, symbols);
+  }
+
+  /**
+   * Moves the whole month window {@code shift} months later (or earlier, if negative).  Resident
+   * months keep their built cells and just shift index; selection state is keyed by date so it
+   * is unaffected.
+   */
+  void slideWindow(int shift) {
+    minCal.add(MONTH, shift);
+    maxCal.setTime(minCal.getTime());
+    maxCal.add(MONTH, monthCount);
+    maxCal.add(MINUTE, -1);
+    dayIndex = new DayIndex(minCal);
+    months.offsetKeys(-shift);
+    cells.offsetKeys(-shift);
+    dirtyMonths.clear();
+    weekRowsBefore = null;
+  }
+
+  /**
+   * Drops the built cells of the month containing {@code date} so they're rebuilt from the current
+   * state, and flags it dirty.  Returns false if the date is outside of the calendar.
+   */
+  boolean invalidateMonth(Date date) {
+    int index = dayIndex.monthIndex(dayIndex.epochDay(date));
+    if (index < 0 || index >= monthCount) {
+      return false;
+    }
+    cells.remove(index);
+    dirtyMonths.set(index);
+    return true;
+  }
+
+  /**
+   * Makes days unselectable until their month's availability has been loaded with
+   * {@link #setAvailability}, or makes availability irrelevant again.  Every month is rebuilt.
+   */
+  void setAvailabilityRequired(boolean required) {
+    availabilityRequired = required;
+    availability.clear();
+    cells.clear();
+    dirtyMonths.set(0, monthCount);
+  }
+
+  boolean isAvailabilityRequired() {
+    return availabilityRequired;
+  }
+
+  /** Whether the month at {@code index} can be shown without waiting for its availability. */
+  boolean hasAvailability(int index) {
+    return !availabilityRequired || availability.containsKey(getYearMonth(index));
+  }
+
+  /** Number of week rows in the month at {@code index}, worked out without building it. */
+  int getWeekCount(int index) {
+    int yearMonth = getYearMonth(index);
+    int first = DayIndex.fromCivil(yearMonth / 12, yearMonth % 12, 1);
+    int days = DayIndex.firstOfNextMonth(first) - first;
+    return (dayIndex.column(first) + days + 6) / 7;
+  }
+
+  /** Total week rows of the months before {@code index}; {@code index} may be the month count. */
+  int getWeekRowsBefore(int index) {
+    if (weekRowsBefore == null) {
+      int[] rows = new int[monthCount + 1];
+      for (int i = 0; i < monthCount; i++) {
+        rows[i + 1] = rows[i] + getWeekCount(i);
+      }
+      weekRowsBefore = rows;
+    }
+    return weekRowsBefore[index];
+  }
+
+  /** Index of the month containing {@code date}, or -1 if it's outside of the calendar. */
+  int getMonthIndex(Date date) {
+    int index = dayIndex.monthIndex(dayIndex.epochDay(date));
+    return index >= 0 && index < monthCount ? index : -1;
+  }
+
+  /** Week row of {@code date} within its month. */
+  int getWeekOfMonth(Date date) {
+    return dayIndex.week(dayIndex.epochDay(date));
+  }
+
+  /** Returns {@code year * 12 + month} (zero-based month) of the month at {@code index}. */
+  int getYearMonth(int index) {
+    return dayIndex.yearMonthAt(index);
+  }
+
+  /** Returns midnight of the first day of the month at {@code index}. */
+  Date getMonthStart(int index) {
+    int yearMonth = getYearMonth(index);
+    int firstDay = DayIndex.fromCivil(yearMonth / 12, yearMonth % 12, 1);
+    return new Date(startOfDay(firstDay, Calendar.getInstance(locale)));
+  }
+
+  /**
+   * Stores the available days of {@code days.length} consecutive months, the first being
+   * {@code firstYearMonth}, and drops the built cells of those months so they're rebuilt with it.
+   */
+  void setAvailability(int firstYearMonth, int[] days) {
+    for (int i = 0; i < days.length; i++) {
+      availability.put(firstYearMonth + i, days[i]);
+      int index = firstYearMonth + i - dayIndex.yearMonthAt(0);
+      if (index >= 0 && index < monthCount) {
+        cells.remove(index);
+        dirtyMonths.set(index);
+      }
+    }
+  }
+
+  /** Returns the availability mask of {@code yearMonth}; empty if it hasn't been loaded. */
+  private int availableDays(int yearMonth) {
+    if (!availabilityRequired) {
+      return ALL_DAYS;
+    }
+    Integer days = availability.get(yearMonth);
+    return days == null ? 0 : days;
+  }
+
+  /** Flags the month holding {@code cell} dirty. */
+  private void markDirty(MonthCellDescriptor cell) {
+    int index = dayIndex.monthIndex(dayIndex.epochDay(cell.getDate()));
+    if (index >= 0) {
+      dirtyMonths.set(index);
+    }
+  }
+
+  /** Index of the earliest month with a selected date, else today's month, else -1. */
+  int getScrollTarget() {
+    int selectedDay = selectedDays.nextDay(dayIndex.epochDay(minCal));
+    if (selectedDay != DaySet.NONE && dayIndex.monthIndex(selectedDay) < monthCount) {
+      return dayIndex.monthIndex(selectedDay);
+    }
+    int todayIndex = dayIndex.monthIndex(Calendar.getInstance(locale));
+    return todayIndex >= 0 && todayIndex < monthCount ? todayIndex : -1;
+  }
+
+  /** The selected date, the first selected one in {@link Mode#MULTIPLE}, or null. */
+  Date getSelectedDate() {
+    if (selectionMode == Mode.MULTIPLE) {
+      int first = selectedDays.firstDay();
+      if (first == DaySet.NONE) {
+        return null;
+      }
+      return new Date(startOfDay(first, Calendar.getInstance(locale)));
+    }
+    return (selectedCals.size() > 0 ? selectedCals.get(0).getTime() : null);
+  }
+
+  /** Number of dates picked by the user; a range counts its endpoints only. */
+  int getSelectionCount() {
+    return selectionMode == Mode.MULTIPLE ? selectedDays.size() : selectedCells.size();
+  }
+
+  List<Date> getSelectedDates() {
+    long[] millis = getSelectedDateMillis();
+    List<Date> selectedDates = new ArrayList<Date>(millis.length);
+    for (long time : millis) {
+      selectedDates.add(new Date(time));
+    }
+    return selectedDates;
+  }
+
+  /** Returns the midnights of the selected dates in ascending order. */
+  long[] getSelectedDateMillis() {
+    Calendar cal = Calendar.getInstance(locale);
+    if (selectionMode == Mode.RANGE && rangeFirstDay != NO_DAY) {
+      // Middle cells only exist for resident months, so walk the range itself.  Only the filter is
+      // checked: in an unbounded calendar, the window can slide past part of the range.
+      long[] millis = new long[rangeLastDay - rangeFirstDay + 1];
+      int count = 0;
+      millis[count++] = startOfDay(rangeFirstDay, cal);
+      for (int day = rangeFirstDay + 1; day < rangeLastDay; day++) {
+        long time = startOfDay(day, cal);
+        if (isDateSelectable(cal.getTime())) {
+          millis[count++] = time;
+        }
+      }
+      millis[count++] = startOfDay(rangeLastDay, cal);
+      return count == millis.length ? millis : Arrays.copyOf(millis, count);
+    }
+    long[] millis = new long[selectedDays.size()];
+    int count = 0;
+    for (int day = selectedDays.firstDay(); day != DaySet.NONE;
+        day = selectedDays.nextDay(day + 1)) {
+      millis[count++] = startOfDay(day, cal);
+    }
+    return millis;
+  }
+
+  /** Sets {@code cal} to the start of {@code epochDay} and returns it in millis. */
+  private static long startOfDay(int epochDay, Calendar cal) {
+    int yearMonth = DayIndex.yearMonth(epochDay);
+    cal.clear();
+    cal.set(yearMonth / 12, yearMonth % 12, DayIndex.dayOfMonth(epochDay));
+    return cal.getTimeInMillis();
+  }
+
+  /** Whether {@code date} is within the calendar's bounds and passes the filter. */
+  boolean isSelectable(Date date) {
+    return betweenDates(date, minCal, maxCal) && isDateSelectable(date);
+  }
+
+  void validateDate(Date date) {
+    if (date == null) {
+      throw new IllegalArgumentException("Selected date must be non-null.");
+    }
+    if (date.getTime() == 0) {
+      throw new IllegalArgumentException("Selected date must be non-zero.  " + date);
+    }
+    if (date.before(minCal.getTime()) || date.after(maxCal.getTime())) {
+      throw new IllegalArgumentException(String.format(
+          "SelectedDate must be between minDate and maxDate."
+              + "%nminDate: %s%nmaxDate: %s%nselectedDate: %s", minCal.getTime(), maxCal.getTime(),
+          date));
+    }
+  }
+
+  boolean doSelectDate(Date date, MonthCellDescriptor cell) {
+    Calendar newlySelectedCal = Calendar.getInstance(locale);
+    newlySelectedCal.setTime(date);
+    // Sanitize input: clear out the hours/minutes/seconds/millis.
+    setMidnight(newlySelectedCal);
+
+    // Clear any remaining range state.
+    for (MonthCellDescriptor selectedCell : selectedCells) {
+      selectedCell.setRangeState(RangeState.NONE);
+      markDirty(selectedCell);
+    }
+
+    switch (selectionMode) {
+      case RANGE:
+
+        if (selectedCals.size() > 1) {
+          // We've already got a range selected: clear the old one.
+          clearOldSelections();
+        } else if (selectedCals.size() == 1 && newlySelectedCal.before(selectedCals.get(0))) {
+          // We're moving the start of the range back in time: clear the old start date.
+          clearOldSelections();
+        }
+        break;
+
+      case MULTIPLE:
+        return toggleMultiSelect(dayIndex.epochDay(newlySelectedCal), cell);
+
+      case SINGLE:
+        clearOldSelections();
+        break;
+      default:
+        throw new IllegalStateException("Unknown selectionMode " + selectionMode);
+    }
+
+    if (date != null) {
+      // Select a new cell.
+      if (selectedCells.size() == 0 || !selectedCells.get(0).equals(cell)) {
+        selectedCells.add(cell);
+        cell.setSelected(true);
+        markDirty(cell);
+      }
+      selectedCals.add(newlySelectedCal);
+      selectedDays.add(dayIndex.epochDay(newlySelectedCal));
+
+      if (selectionMode == Mode.RANGE && selectedCells.size() > 1) {
+        // Select all days in between start and end.
+        applyRange(dayIndex.epochDay(selectedCells.get(0).getDate()),
+            dayIndex.epochDay(selectedCells.get(1).getDate()));
+      }
+    }
+    return date != null;
+  }
+
+  /**
+   * Moves the FIRST or LAST end of the selected range to {@code cell}.  Returns false if there's
+   * no complete range or the move would make the range empty.
+   */
+  boolean moveRangeEndpoint(RangeState endpoint, MonthCellDescriptor cell) {
+    if (selectionMode != Mode.RANGE || selectedCells.size() < 2) {
+      return false;
+    }
+    int day = dayIndex.epochDay(cell.getDate());
+    int first = endpoint == RangeState.FIRST ? day : rangeFirstDay;
+    int last = endpoint == RangeState.LAST ? day : rangeLastDay;
+    if (first >= last) {
+      return false;
+    }
+
+    Calendar cal = Calendar.getInstance(locale);
+    cal.setTime(cell.getDate());
+    setMidnight(cal);
+    int index = endpoint == RangeState.FIRST ? 0 : 1;
+    selectedDays.remove(dayIndex.epochDay(selectedCals.get(index)));
+    selectedDays.add(day);
+    selectedCells.get(index).setSelected(false);
+    markDirty(selectedCells.get(index));
+    selectedCells.set(index, cell);
+    selectedCals.set(index, cal);
+    cell.setSelected(true);
+    markDirty(cell);
+
+    applyRange(first, last);
+    return true;
+  }
+
+  /**
+   * Shows [{@code first}, {@code last}] as the selected range, or no range if both are
+   * {@link #NO_DAY}.  Only days whose state can differ between the old and new range are visited:
+   * those between the old and new first days and between the old and new last days.  Months that
+   * aren't resident pick the range up from selectedCals when they're rebuilt.
+   */
+  private void applyRange(int first, int last) {
+    int oldFirst = rangeFirstDay;
+    int oldLast = rangeLastDay;
+    rangeFirstDay = first;
+    rangeLastDay = last;
+
+    if (oldFirst == NO_DAY) {
+      if (first != NO_DAY) {
+        updateRangeCells(first, last);
+      }
+    } else if (first == NO_DAY) {
+      updateRangeCells(oldFirst, oldLast);
+    } else {
+      updateRangeCells(Math.min(oldFirst, first), Math.max(oldFirst, first));
+      updateRangeCells(Math.min(oldLast, last), Math.max(oldLast, last));
+    }
+  }
+
+  /** Recomputes range state for resident cells between two epoch days, inclusive. */
+  private void updateRangeCells(int from, int to) {
+    int day = from;
+    while (day <= to) {
+      int nextMonth = DayIndex.firstOfNextMonth(day);
+      int monthIndex = dayIndex.monthIndex(day);
+      List<List<MonthCellDescriptor>> monthCells = cells.get(monthIndex);
+      if (monthCells == null) {
+        day = nextMonth;
+        continue;
+      }
+      dirtyMonths.set(monthIndex);
+      for (int end = Math.min(to, nextMonth - 1); day <= end; day++) {
+        MonthCellDescriptor cell = monthCells.get(dayIndex.week(day)).get(dayIndex.column(day));
+        if (day == rangeFirstDay) {
+          cell.setSelected(true);
+          cell.setRangeState(RangeState.FIRST);
+        } else if (day == rangeLastDay) {
+          cell.setSelected(true);
+          cell.setRangeState(RangeState.LAST);
+        } else if (day > rangeFirstDay && day < rangeLastDay && cell.isSelectable()) {
+          cell.setSelected(true);
+          cell.setRangeState(RangeState.MIDDLE);
+        } else {
+          cell.setSelected(false);
+          cell.setRangeState(RangeState.NONE);
+        }
+      }
+    }
+  }
+
+  private void clearOldSelections() {
+    if (rangeFirstDay != NO_DAY) {
+      applyRange(NO_DAY, NO_DAY);
+    }
+    for (MonthCellDescriptor selectedCell : selectedCells) {
+      // De-select the currently-selected cell.
+      selectedCell.setSelected(false);
+      markDirty(selectedCell);
+    }
+    selectedCells.clear();
+    selectedCals.clear();
+    selectedDays.clear();
+  }
+
+  /** Flips {@code day} in or out of the {@link Mode#MULTIPLE} selection; true if it's now in. */
+  private boolean toggleMultiSelect(int day, MonthCellDescriptor cell) {
+    boolean selected = !selectedDays.contains(day);
+    if (selected) {
+      selectedDays.add(day);
+    } else {
+      selectedDays.remove(day);
+    }
+    cell.setSelected(selected);
+    markDirty(cell);
+    return selected;
+  }
+
+
+  /**
+   * Highlights {@code count} dates from {@code millis}.  Every date is validated before any is
+   * applied, so a bad date leaves the highlights untouched.  Dates that aren't selectable are kept
+   * but never shown as highlighted.
+   */
+  void highlightDates(long[] millis, int count) {
+    validateDates(millis, count);
+    if (count == 0) {
+      return;
+    }
+    int first = Integer.MAX_VALUE;
+    int last = Integer.MIN_VALUE;
+    for (int i = 0; i < count; i++) {
+      int day = dayIndex.epochDay(millis[i]);
+      highlightedDays.add(day);
+      first = Math.min(first, day);
+      last = Math.max(last, day);
+    }
+    refreshResidentCells(first, last);
+  }
+
+  /** Highlights every date from {@code from} to {@code to}, both inclusive. */
+  void highlightDateRange(Date from, Date to) {
+    validateDate(from);
+    validateDate(to);
+    int first = dayIndex.epochDay(from);
+    int last = dayIndex.epochDay(to);
+    if (first > last) {
+      throw new IllegalArgumentException(
+          "from must not be after to.  from: " + from + ", to: " + to);
+    }
+    highlightedDays.addRange(first, last);
+    refreshResidentCells(first, last);
+  }
+
+  /**
+   * Sets the highlight category of {@code count} dates from {@code millis}; 0 removes it.  Every
+   * date is validated before any is applied.
+   */
+  void setHighlightCategory(long[] millis, int count, int category) {
+    validateCategory(category);
+    validateDates(millis, count);
+    if (count == 0) {
+      return;
+    }
+    int first = Integer.MAX_VALUE;
+    int last = Integer.MIN_VALUE;
+    for (int i = 0; i < count; i++) {
+      int day = dayIndex.epochDay(millis[i]);
+      highlightCategories.set(day, category);
+      first = Math.min(first, day);
+      last = Math.max(last, day);
+    }
+    refreshResidentCells(first, last);
+  }
+
+  /** Sets the highlight category of every date from {@code from} to {@code to}, inclusive. */
+  void setHighlightCategory(Date from, Date to, int category) {
+    validateCategory(category);
+    validateDate(from);
+    validateDate(to);
+    int first = dayIndex.epochDay(from);
+    int last = dayIndex.epochDay(to);
+    if (first > last) {
+      throw new IllegalArgumentException(
+          "from must not be after to.  from: " + from + ", to: " + to);
+    }
+    highlightCategories.setRange(first, last, category);
+    refreshResidentCells(first, last);
+  }
+
+  int getHighlightCategory(Date date) {
+    return highlightCategories.get(dayIndex.epochDay(date));
+  }
+
+  void clearHighlightCategories() {
+    highlightCategories.clear();
+    refreshResidentCells(dayIndex.epochDay(minCal), dayIndex.epochDay(maxCal));
+  }
+
+  private static void validateCategory(int category) {
+    if (category < 0 || category > DayCategories.MAX_CATEGORY) {
+      throw new IllegalArgumentException(
+          "Category must be between 0 and " + DayCategories.MAX_CATEGORY + ": " + category);
+    }
+  }
+
+  /**
+   * Selects {@code count} dates from {@code millis} and returns how many of them were selectable.
+   * Every date is validated before any is applied.  Unlike {@link #doSelectDate}, dates are added
+   * to a {@link Mode#MULTIPLE} selection rather than toggled.
+   */
+  int selectDates(long[] millis, int count) {
+    validateDates(millis, count);
+    int selected = 0;
+    if (selectionMode != Mode.MULTIPLE) {
+      for (int i = 0; i < count; i++) {
+        Date date = new Date(millis[i]);
+        MonthCellWithMonthIndex monthCell = getMonthCellWithIndexByDate(date);
+        if (monthCell != null && isSelectable(date) && doSelectDate(date, monthCell.cell)) {
+          selected++;
+        }
+      }
+      return selected;
+    }
+    Date date = new Date();
+    int first = Integer.MAX_VALUE;
+    int last = Integer.MIN_VALUE;
+    for (int i = 0; i < count; i++) {
+      date.setTime(millis[i]);
+      if (isSelectable(date)) {
+        int day = dayIndex.epochDay(millis[i]);
+        selectedDays.add(day);
+        first = Math.min(first, day);
+        last = Math.max(last, day);
+        selected++;
+      }
+    }
+    if (selected > 0) {
+      refreshResidentCells(first, last);
+    }
+    return selected;
+  }
+
+  private void validateDates(long[] millis, int count) {
+    Date date = new Date();
+    for (int i = 0; i < count; i++) {
+      date.setTime(millis[i]);
+      validateDate(date);
+    }
+  }
+
+  /**
+   * Re-reads the highlight flag and category, and in {@link Mode#MULTIPLE} the selected flag, of
+   * the resident cells from {@code from} to {@code to}.  Months that aren't resident pick them up
+   * when they're built, so a bulk update costs the same however many dates it covers.
+   */
+  private void refreshResidentCells(int from, int to) {
+    int day = from;
+    while (day <= to) {
+      int nextMonth = DayIndex.firstOfNextMonth(day);
+      int monthIndex = dayIndex.monthIndex(day);
+      List<List<MonthCellDescriptor>> monthCells = cells.get(monthIndex);
+      if (monthCells == null) {
+        day = nextMonth;
+        continue;
+      }
+      dirtyMonths.set(monthIndex);
+      for (int end = Math.min(to, nextMonth - 1); day <= end; day++) {
+        MonthCellDescriptor cell = monthCells.get(dayIndex.week(day)).get(dayIndex.column(day));
+        boolean selectable = cell.isSelectable();
+        cell.setHighlighted(selectable && highlightedDays.contains(day));
+        cell.setHighlightCategory(selectable ? highlightCategories.get(day) : 0);
+        if (selectionMode == Mode.MULTIPLE) {
+          cell.setSelected(selectedDays.contains(day));
+        }
+      }
+    }
+  }
+
+  /**
+   * Replaces the closed days.  Resident months are dropped and flagged dirty so that they're
+   * rebuilt with the new days, like the ones that aren't resident.
+   */
+  void setDaysClosedDates(Collection<Date> daysClosedDates) {
+    daysClosed.clear();
+    for (Date date : daysClosedDates) {
+      daysClosed.add(dayIndex.epochDay(date));
+    }
+    for (Integer index : cells.keySet()) {
+      dirtyMonths.set(index);
+    }
+    cells.clear();
+  }
+
+  /** Hold a cell with a month-index. */
+  static class MonthCellWithMonthIndex {
+    public MonthCellDescriptor cell;
+    public int monthIndex;
+
+    public MonthCellWithMonthIndex(MonthCellDescriptor cell, int monthIndex) {
+      this.cell = cell;
+      this.monthIndex = monthIndex;
+    }
+  }
+
+  /** Return cell and month-index (for scrolling) for a given Date. */
+  MonthCellWithMonthIndex getMonthCellWithIndexByDate(Date date) {
+    return getMonthCellWithIndexByDay(dayIndex.epochDay(date));
+  }
+
+  /** Return cell and month-index for an epoch day; the cell is located by arithmetic alone. */
+  private MonthCellWithMonthIndex getMonthCellWithIndexByDay(int epochDay) {
+    int index = dayIndex.monthIndex(epochDay);
+    if (index < 0 || index >= monthCount) {
+      return null;
+    }
+    MonthCellDescriptor cell =
+        getMonthCells(index).get(dayIndex.week(epochDay)).get(dayIndex.column(epochDay));
+    return cell.isSelectable() ? new MonthCellWithMonthIndex(cell, index) : null;
+  }
+
+  /** Returns the descriptor for the month at {@code index}, building it if it isn't resident. */
+  MonthDescriptor getMonth(int index) {
+    MonthDescriptor month = months.get(index);
+    if (month == null) {
+      monthCounter.setTime(minCal.getTime());
+      monthCounter.add(MONTH, index);
+      Date date = monthCounter.getTime();
+      int monthOfYear = monthCounter.get(MONTH);
+      int year = monthCounter.get(YEAR);
+      month = new MonthDescriptor(monthOfYear, year, date,
+          labels.getMonthLabel(year, monthOfYear, date));
+      months.put(index, month);
+    }
+    return month;
+  }
+
+  boolean isResident(int index) {
+    return cells.containsKey(index);
+  }
+
+  /** Returns the cells for the month at {@code index}, building them if they aren't resident. */
+  List<List<MonthCellDescriptor>> getMonthCells(int index) {
+    List<List<MonthCellDescriptor>> monthCells = cells.get(index);
+    if (monthCells == null) {
+      MonthDescriptor month = getMonth(index);
+      monthCounter.setTime(month.getDate());
+      monthCells = getMonthCells(month, monthCounter);
+      cells.put(index, monthCells);
+      relinkSelectedCells(index, monthCells);
+    }
+    return monthCells;
+  }
+
+  /**
+   * Points {@link #selectedCells} at the rebuilt cells of month {@code index}, so that deselecting
+   * them later updates what's shown.
+   */
+  private void relinkSelectedCells(int index, List<List<MonthCellDescriptor>> monthCells) {
+    for (int i = 0; i < selectedCells.size(); i++) {
+      int day = dayIndex.epochDay(selectedCells.get(i).getDate());
+      if (dayIndex.monthIndex(day) == index) {
+        selectedCells.set(i, monthCells.get(dayIndex.week(day)).get(dayIndex.column(day)));
+      }
+    }
+  }
+
+  List<List<MonthCellDescriptor>> getMonthCells(MonthDescriptor month, Calendar startCal) {
+    Calendar cal = Calendar.getInstance(locale);
+    cal.setTime(startCal.getTime());
+    List<List<MonthCellDescriptor>> cells = new ArrayList<List<MonthCellDescriptor>>();
+    cal.set(DAY_OF_MONTH, 1);
+
+
+    // set starting day in month
+    // TODO: provide abililty to alter starting day of week
+    int firstDayOfWeek = cal.get(DAY_OF_WEEK);
+    int offset = cal.getFirstDayOfWeek() - firstDayOfWeek;
+    if (offset > 0) {
+      offset -= 7;
+    }
+    cal.add(Calendar.DATE, offset);
+
+    int epochDay = dayIndex.epochDay(cal);
+    int availableDays = availableDays(month.getYear() * 12 + month.getMonth());
+
+    while ((cal.get(MONTH) < month.getMonth() + 1 || cal.get(YEAR) < month.getYear()) //
+        && cal.get(YEAR) <= month.getYear()) {
+      List<MonthCellDescriptor> weekCells = new ArrayList<MonthCellDescriptor>();
+      cells.add(weekCells);
+      for (int c = 0; c < 7; c++) {
+        Date date = cal.getTime();
+        boolean isCurrentMonth = cal.get(MONTH) == month.getMonth();
+        boolean isSelected = isCurrentMonth && selectedDays.contains(epochDay);
+        int value = cal.get(DAY_OF_MONTH);
+        boolean isSelectable = isCurrentMonth && betweenDates(cal, minCal, maxCal)
+            && (availableDays & 1 << value - 1) != 0 && passesFilter(epochDay, date);
+        boolean isToday = sameDate(cal, today);
+        boolean isClosed = daysClosed.contains(epochDay);
+
+        boolean isHighlighted = isSelectable && highlightedDays.contains(epochDay);
+        int highlightCategory = isSelectable ? highlightCategories.get(epochDay) : 0;
+
+        RangeState rangeState = RangeState.NONE;
+        if (rangeFirstDay != NO_DAY && isCurrentMonth) {
+          if (epochDay == rangeFirstDay) {
+            rangeState = RangeState.FIRST;
+          } else if (epochDay == rangeLastDay) {
+            rangeState = RangeState.LAST;
+          } else if (isSelectable && epochDay > rangeFirstDay && epochDay < rangeLastDay) {
+            rangeState = RangeState.MIDDLE;
+            isSelected = true;
+          }
+        }
+
+        weekCells.add(
+            new MonthCellDescriptor(date, isCurrentMonth, isSelectable, isSelected, isToday,
+                isClosed, isHighlighted, highlightCategory, value, rangeState));
+        cal.add(DATE, 1);
+        epochDay++;
+      }
+    }
+    return cells;
+  }
+
+  private static boolean sameDate(Calendar cal, Calendar selectedDate) {
+    return cal.get(MONTH) == selectedDate.get(MONTH)
+        && cal.get(YEAR) == selectedDate.get(YEAR)
+        && cal.get(DAY_OF_MONTH) == selectedDate.get(DAY_OF_MONTH);
+  }
+
+  private static boolean betweenDates(Calendar cal, Calendar minCal, Calendar maxCal) {
+    final Date date = cal.getTime();
+    return betweenDates(date, minCal, maxCal);
+  }
+
+  static boolean betweenDates(Date date, Calendar minCal, Calendar maxCal) {
+    final Date min = minCal.getTime();
+    return (date.equals(min) || date.after(min)) // >= minCal
+        && date.before(maxCal.getTime()); // && < maxCal
+  }
+
+  private boolean isDateSelectable(Date date) {
+    int day = dayIndex.epochDay(date);
+    return (availableDays(DayIndex.yearMonth(day)) & 1 << DayIndex.dayOfMonth(day) - 1) != 0
+        && passesFilter(day, date);
+  }
+
+  /** Asks the filter about {@code date} the first time it's needed and remembers the answer. */
+  private boolean passesFilter(int epochDay, Date date) {
+    if (filter == null) {
+      return true;
+    }
+    if (filterChecked.contains(epochDay)) {
+      return filterPassed.contains(epochDay);
+    }
+    boolean passed = filter.isDateSelectable(date);
+    filterChecked.add(epochDay);
+    if (passed) {
+      filterPassed.add(epochDay);
+    }
+    return passed;
+  }
+
+  /**
+   * Forgets what the filter said about every day from {@code from} to {@code to}, both inclusive,
+   * and asks it again for those days' resident cells.  Days outside the calendar are ignored.
+   */
+  void invalidateSelectability(Date from, Date to) {
+    if (from == null || to == null) {
+      throw new IllegalArgumentException(
+          "from and to must be non-null.  from: " + from + ", to: " + to);
+    }
+    int first = dayIndex.epochDay(from);
+    int last = dayIndex.epochDay(to);
+    if (first > last) {
+      throw new IllegalArgumentException(
+          "from must not be after to.  from: " + from + ", to: " + to);
+    }
+    first = Math.max(first, dayIndex.epochDay(minCal));
+    last = Math.min(last, dayIndex.epochDay(maxCal));
+    if (first > last) {
+      return;
+    }
+    filterChecked.removeRange(first, last);
+    filterPassed.removeRange(first, last);
+    refreshSelectability(first, last);
+  }
+
+  /** Forgets everything the filter said, and asks it again for the resident cells. */
+  void invalidateSelectability() {
+    filterChecked.clear();
+    filterPassed.clear();
+    refreshSelectability(dayIndex.epochDay(minCal), dayIndex.epochDay(maxCal));
+  }
+
+  /** Re-evaluates the selectability of resident cells from {@code from} to {@code to}. */
+  private void refreshSelectability(int from, int to) {
+    int day = from;
+    while (day <= to) {
+      int nextMonth = DayIndex.firstOfNextMonth(day);
+      int monthIndex = dayIndex.monthIndex(day);
+      List<List<MonthCellDescriptor>> monthCells = cells.get(monthIndex);
+      if (monthCells == null) {
+        day = nextMonth;
+        continue;
+      }
+      for (int end = Math.min(to, nextMonth - 1); day <= end; day++) {
+        MonthCellDescriptor cell = monthCells.get(dayIndex.week(day)).get(dayIndex.column(day));
+        cell.setSelectable(isSelectable(cell.getDate()));
+      }
+    }
+    // Highlights and range middles only show on selectable days; this also flags the months dirty.
+    refreshResidentCells(from, to);
+    if (rangeFirstDay != NO_DAY && from <= rangeLastDay && to >= rangeFirstDay) {
+      updateRangeCells(Math.max(from, rangeFirstDay), Math.min(to, rangeLastDay));
+    }
+  }
+
+  /** Clears out the hours/minutes/seconds/millis of a Calendar. */
+  static void setMidnight(Calendar cal) {
+    cal.set(HOUR_OF_DAY, 0);
+    cal.set(MINUTE, 0);
+    cal.set(SECOND, 0);
+    cal.set(MILLISECOND, 0);
+  }
+}
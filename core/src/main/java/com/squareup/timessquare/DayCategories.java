@@ -0,0 +1,109 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Arrays;
+
+/**
+ * A small category code for each epoch day (see {@link DayIndex}), 0 meaning none.  Codes are kept
+ * as one byte per day in an array per month, and months without any code take no space beyond a
+ * null slot, so years of categories cost a few bytes a day.  Lookups never allocate.
+ */
+final class DayCategories {
+  /** Largest category code; codes have to fit the bits {@code CellStates} sets aside for them. */
+  static final int MAX_CATEGORY = 7;
+  private static final int MAX_DAYS_IN_MONTH = 31;
+
+  /** Per-day codes of each month, indexed by {@code yearMonth - baseYearMonth}. */
+  private byte[][] months = new byte[0][];
+  private int baseYearMonth;
+
+  int get(int epochDay) {
+    int slot = DayIndex.yearMonth(epochDay) - baseYearMonth;
+    if (slot < 0 || slot >= months.length || months[slot] == null) {
+      return 0;
+    }
+    return months[slot][DayIndex.dayOfMonth(epochDay) - 1];
+  }
+
+  void set(int epochDay, int category) {
+    setRange(epochDay, epochDay, category);
+  }
+
+  /** Sets every day from {@code first} to {@code last}, both inclusive, to {@code category}. */
+  void setRange(int first, int last, int category) {
+    int day = first;
+    while (day <= last) {
+      int nextMonth = DayIndex.firstOfNextMonth(day);
+      int end = Math.min(last, nextMonth - 1);
+      byte[] codes = month(DayIndex.yearMonth(day), category != 0);
+      if (codes != null) {
+        Arrays.fill(codes, DayIndex.dayOfMonth(day) - 1, DayIndex.dayOfMonth(end), (byte) category);
+      }
+      day = nextMonth;
+    }
+  }
+
+  /**
+   * Returns every day with a code as {@code first, last, category} triples of consecutive days
+   * sharing a code, in ascending order.
+   */
+  int[] toRuns() {
+    int[] runs = new int[12];
+    int size = 0;
+    for (int slot = 0; slot < months.length; slot++) {
+      byte[] codes = months[slot];
+      if (codes == null) {
+        continue;
+      }
+      int yearMonth = baseYearMonth + slot;
+      int firstOfMonth = DayIndex.fromCivil(yearMonth / 12, yearMonth % 12, 1);
+      for (int day = 0; day < codes.length; ) {
+        int end = day + 1;
+        while (end < codes.length && codes[end] == codes[day]) {
+          end++;
+        }
+        if (codes[day] != 0) {
+          if (size == runs.length) {
+            runs = Arrays.copyOf(runs, size * 2);
+          }
+          runs[size++] = firstOfMonth + day;
+          runs[size++] = firstOfMonth + end - 1;
+          runs[size++] = codes[day];
+        }
+        day = end;
+      }
+    }
+    return Arrays.copyOf(runs, size);
+  }
+
+  void clear() {
+    months = new byte[0][];
+  }
+
+  /** Returns the codes of {@code yearMonth}, creating them only if {@code create} is set. */
+  private byte[] month(int yearMonth, boolean create) {
+    if (months.length == 0) {
+      if (!create) {
+        return null;
+      }
+      baseYearMonth = yearMonth;
+    }
+    int slot = yearMonth - baseYearMonth;
+    if (slot < 0 || slot >= months.length) {
+      if (!create) {
+        return null;
+      }
+      int newBase = Math.min(baseYearMonth, yearMonth);
+      int newLength = Math.max(baseYearMonth + months.length, yearMonth + 1) - newBase;
+      byte[][] grown = new byte[newLength][];
+      System.arraycopy(months, 0, grown, baseYearMonth - newBase, months.length);
+      months = grown;
+      baseYearMonth = newBase;
+      slot = yearMonth - baseYearMonth;
+    }
+    if (months[slot] == null && create) {
+      months[slot] = new byte[MAX_DAYS_IN_MONTH];
+    }
+    return months[slot];
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static java.util.Calendar.MONTH;
+import static java.util.Calendar.YEAR;
+
+/**
+ * Numbers days as epoch days (days since 1970-01-01 in the calendar's time zone) and maps an epoch
+ * day to its month index, week row and column in the calendar grid.  Everything past turning a
+ * {@link Date} into an epoch day is plain integer arithmetic.
+ */
+final class DayIndex {
+  static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+  private final TimeZone timeZone;
+  private final int firstDayOfWeek;
+  private final int firstYearMonth;
+
+  /**
+   * @param firstMonth any day in the month that gets index 0.  Its time zone and first day of the
+   * week are used for every conversion.
+   */
+  DayIndex(Calendar firstMonth) {
+    timeZone = firstMonth.getTimeZone();
+    firstDayOfWeek = firstMonth.getFirstDayOfWeek();
+    firstYearMonth = firstMonth.get(YEAR) * 12 + firstMonth.get(MONTH);
+  }
+
+  int epochDay(Date date) {
+    return epochDay(date.getTime());
+  }
+
+  int epochDay(Calendar cal) {
+    return epochDay(cal.getTimeInMillis());
+  }
+
+  int epochDay(long millis) {
+    long local = millis + timeZone.getOffset(millis);
+    return (int) (local >= 0 ? local / MILLIS_PER_DAY : (local + 1) / MILLIS_PER_DAY - 1);
+  }
+
+  /** Index of the month containing {@code epochDay}, relative to the first month. */
+  int monthIndex(int epochDay) {
+    return yearMonth(epochDay) - firstYearMonth;
+  }
+
+  /** Returns {@code year * 12 + month} (zero-based month) of the month at {@code monthIndex}. */
+  int yearMonthAt(int monthIndex) {
+    return firstYearMonth + monthIndex;
+  }
+
+  /** Index of the month containing {@code cal}, relative to the first month. */
+  int monthIndex(Calendar cal) {
+    return cal.get(YEAR) * 12 + cal.get(MONTH) - firstYearMonth;
+  }
+
+  /** Week row of {@code epochDay} within its own month's grid. */
+  int week(int epochDay) {
+    int dayOfMonth = dayOfMonth(epochDay);
+    return (dayOfMonth - 1 + column(epochDay - dayOfMonth + 1)) / 7;
+  }
+
+  /** Column of {@code epochDay} within a week row, 0 being the locale's first day of the week. */
+  int column(int epochDay) {
+    return (dayOfWeek(epochDay) - firstDayOfWeek + 7) % 7;
+  }
+
+  /** Returns the {@link Calendar#DAY_OF_WEEK} value of {@code epochDay}. */
+  static int dayOfWeek(int epochDay) {
+    // 1970-01-01 was a Thursday.
+    int offset = (epochDay + 4) % 7;
+    return (offset < 0 ? offset + 7 : offset) + Calendar.SUNDAY;
+  }
+
+  /** Returns the epoch day of a year, zero-based month (as in {@link Calendar#MONTH}) and day. */
+  static int fromCivil(int year, int month, int dayOfMonth) {
+    int y = month < 2 ? year - 1 : year;
+    int era = (y >= 0 ? y : y - 399) / 400;
+    int yearOfEra = y - era * 400;
+    int shiftedMonth = month < 2 ? month + 10 : month - 2; // March-based.
+    int dayOfYear = (153 * shiftedMonth + 2) / 5 + dayOfMonth - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  /** Returns {@code year * 12 + month} (zero-based month) of {@code epochDay}. */
+  static int yearMonth(int epochDay) {
+    int z = epochDay + 719468;
+    int era = (z >= 0 ? z : z - 146096) / 146097;
+    int dayOfEra = z - era * 146097;
+    int yearOfEra = yearOfEra(dayOfEra);
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int month = shiftedMonth < 10 ? shiftedMonth + 2 : shiftedMonth - 10;
+    int year = yearOfEra + era * 400 + (month < 2 ? 1 : 0);
+    return year * 12 + month;
+  }
+
+  /** Returns the epoch day of the first day of the month after {@code epochDay}'s month. */
+  static int firstOfNextMonth(int epochDay) {
+    int next = yearMonth(epochDay) + 1;
+    return fromCivil(next / 12, next % 12, 1);
+  }
+
+  /** Returns the day of the month (1-based) of {@code epochDay}. */
+  static int dayOfMonth(int epochDay) {
+    int z = epochDay + 719468;
+    int era = (z >= 0 ? z : z - 146096) / 146097;
+    int dayOfEra = z - era * 146097;
+    int yearOfEra = yearOfEra(dayOfEra);
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int shiftedMonth = (5 * dayOfYear + 2) / 153;
+    return dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+  }
+
+  private static int yearOfEra(int dayOfEra) {
+    return (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+  }
+}
@@ -0,0 +1,106 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Set of epoch days (see {@link DayIndex}) stored as one bit per day, offset from a base day so
+ * that a few years of dates fit in a few hundred bytes.  Membership tests never allocate.
+ */
+final class DaySet {
+  /** Returned by {@link #nextDay(int)} when there's no later day. */
+  static final int NONE = Integer.MIN_VALUE;
+
+  private BitSet bits = new BitSet();
+  /** Epoch day represented by bit 0. */
+  private int base;
+
+  boolean contains(int epochDay) {
+    int bit = epochDay - base;
+    return bit >= 0 && bits.get(bit);
+  }
+
+  /** Returns the earliest day in the set, or {@link #NONE}. */
+  int firstDay() {
+    int bit = bits.nextSetBit(0);
+    return bit < 0 ? NONE : bit + base;
+  }
+
+  /** Returns the first day in the set on or after {@code epochDay}, or {@link #NONE}. */
+  int nextDay(int epochDay) {
+    int bit = bits.nextSetBit(Math.max(epochDay - base, 0));
+    return bit < 0 ? NONE : bit + base;
+  }
+
+  void add(int epochDay) {
+    if (bits.isEmpty()) {
+      base = epochDay;
+    } else if (epochDay < base) {
+      // Re-base with slack below the new day so that adding dates in descending order doesn't
+      // rebuild the set every time.
+      int span = bits.length();
+      rebase(epochDay - Math.min(span, 366));
+    }
+    bits.set(epochDay - base);
+  }
+
+  /** Adds every day from {@code first} to {@code last}, both inclusive. */
+  void addRange(int first, int last) {
+    add(first);
+    add(last);
+    bits.set(first - base, last - base + 1);
+  }
+
+  void remove(int epochDay) {
+    int bit = epochDay - base;
+    if (bit >= 0) {
+      bits.clear(bit);
+    }
+  }
+
+  /** Removes every day from {@code first} to {@code last}, both inclusive. */
+  void removeRange(int first, int last) {
+    int from = Math.max(first - base, 0);
+    if (last - base >= from) {
+      bits.clear(from, last - base + 1);
+    }
+  }
+
+  void clear() {
+    bits.clear();
+  }
+
+  boolean isEmpty() {
+    return bits.isEmpty();
+  }
+
+  int size() {
+    return bits.cardinality();
+  }
+
+  /** Returns the set as {@code first, last} pairs of consecutive days, in ascending order. */
+  int[] toRuns() {
+    int[] runs = new int[8];
+    int size = 0;
+    for (int bit = bits.nextSetBit(0); bit >= 0; ) {
+      int end = bits.nextClearBit(bit);
+      if (size == runs.length) {
+        runs = Arrays.copyOf(runs, size * 2);
+      }
+      runs[size++] = bit + base;
+      runs[size++] = end - 1 + base;
+      bit = bits.nextSetBit(end);
+    }
+    return Arrays.copyOf(runs, size);
+  }
+
+  private void rebase(int newBase) {
+    BitSet rebased = new BitSet(bits.length() + base - newBase);
+    for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+      rebased.set(bit + base - newBase);
+    }
+    bits = rebased;
+    base = newBase;
+  }
+}
@@ -0,0 +1,36 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Access-ordered map of month index to a built month model.  Holds at most {@code maxSize}
+ * entries: once full, the least recently used month is dropped and will be rebuilt the next time
+ * it is asked for.
+ */
+final class MonthCache<V> extends LinkedHashMap<Integer, V> {
+  private static final long serialVersionUID = 0L;
+
+  private final int maxSize;
+
+  MonthCache(int maxSize) {
+    super(maxSize + 1, 1f, true);
+    this.maxSize = maxSize;
+  }
+
+  @Override protected boolean removeEldestEntry(Map.Entry<Integer, V> eldest) {
+    return size() > maxSize;
+  }
+
+  /** Adds {@code offset} to every key, keeping the entries and their access order. */
+  void offsetKeys(int offset) {
+    List<Map.Entry<Integer, V>> entries = new ArrayList<Map.Entry<Integer, V>>(entrySet());
+    clear();
+    for (Map.Entry<Integer, V> entry : entries) {
+      put(entry.getKey() + offset, entry.getValue());
+    }
+  }
+}
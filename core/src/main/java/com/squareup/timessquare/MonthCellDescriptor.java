@@ -4,7 +4,7 @@ package com.squareup.timessquare;
 
 import java.util.Date;
 
-/** Describes the state of a particular date cell in a {@link MonthView}. */
+/** Describes the state of a particular date cell in a {@code MonthView}. */
 class MonthCellDescriptor {
 
   private final Date date;
@@ -13,16 +13,19 @@ class MonthCellDescriptor {
   private boolean isSelected;
   private final boolean isToday;
   private final boolean isClosed;
-  private final boolean isSelectable;
+  private boolean isSelectable;
   private boolean isHighlighted;
+  private int highlightCategory;
   private RangeState rangeState;
 
   MonthCellDescriptor(Date date, boolean currentMonth, boolean selectable, boolean selected,
-      boolean today, boolean closed, boolean highlighted, int value, RangeState rangeState) {
+      boolean today, boolean closed, boolean highlighted, int highlightCategory, int value,
+      RangeState rangeState) {
     this.date = date;
     isCurrentMonth = currentMonth;
     isSelectable = selectable;
     isHighlighted = highlighted;
+    this.highlightCategory = highlightCategory;
     isSelected = selected;
     isToday = today;
     isClosed = closed;
@@ -42,6 +45,10 @@ class MonthCellDescriptor {
     return isSelectable;
   }
 
+  void setSelectable(boolean selectable) {
+    isSelectable = selectable;
+  }
+
   public boolean isSelected() {
     return isSelected;
   }
@@ -58,6 +65,15 @@ class MonthCellDescriptor {
     isHighlighted = highlighted;
   }
 
+  /** Highlight category code of this day, 0 if it has none. */
+  int getHighlightCategory() {
+    return highlightCategory;
+  }
+
+  void setHighlightCategory(int highlightCategory) {
+    this.highlightCategory = highlightCategory;
+  }
+
   public boolean isToday() {
     return isToday;
   }
@@ -92,6 +108,8 @@ class MonthCellDescriptor {
         + isSelectable
         + ", isHighlighted="
         + isHighlighted
+        + ", highlightCategory="
+        + highlightCategory
         + ", rangeState="
         + rangeState
         + '}';
@@ -0,0 +1,301 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CalendarModelTest {
+  private static final Locale LOCALE = Locale.US;
+  private static final String MONTH_NAME_FORMAT = "MMMM yyyy";
+  private static final String DAY_NAME_FORMAT = "EEE";
+
+  @Test public void rangeSelectsTheDaysBetweenTwoClicks() {
+    CalendarModel model = newModel(Collections.<Date>emptyList());
+    model.selectionMode = CalendarModel.Mode.RANGE;
+
+    assertTrue(select(model, date(Calendar.MARCH, 10)));
+    assertEquals(1, model.getSelectionCount());
+    assertTrue(select(model, date(Calendar.MARCH, 20)));
+
+    assertEquals(2, model.getSelectionCount());
+    assertEquals(days(Calendar.MARCH, 10, 20), model.getSelectedDates());
+    assertEquals(RangeState.FIRST, cell(model, Calendar.MARCH, 10).getRangeState());
+    assertEquals(RangeState.MIDDLE, cell(model, Calendar.MARCH, 15).getRangeState());
+    assertEquals(RangeState.LAST, cell(model, Calendar.MARCH, 20).getRangeState());
+    assertEquals(RangeState.NONE, cell(model, Calendar.MARCH, 21).getRangeState());
+  }
+
+  @Test public void rangeAcrossMonths() {
+    CalendarModel model = newModel(Collections.<Date>emptyList());
+    model.selectionMode = CalendarModel.Mode.RANGE;
+
+    select(model, date(Calendar.JANUARY, 30));
+    select(model, date(Calendar.FEBRUARY, 2));
+
+    assertEquals(4, model.getSelectedDates().size());
+    assertEquals(RangeState.MIDDLE, cell(model, Calendar.JANUARY, 31).getRangeState());
+    assertEquals(RangeState.MIDDLE, cell(model, Calendar.FEBRUARY, 1).getRangeState());
+  }
+
+  @Test public void clickAfterACompleteRangeStartsANewOne() {
+    CalendarModel model = newModel(Collections.<Date>emptyList());
+    model.selectionMode = CalendarModel.Mode.RANGE;
+    select(model, date(Calendar.MARCH, 10));
+    select(model, date(Calendar.MARCH, 20));
+
+    select(model, date(Calendar.MARCH, 25));
+
+    assertEquals(1, model.getSelectionCount());
+    assertEquals(date(Calendar.MARCH, 25), model.getSelectedDate());
+    assertFalse(cell(model, Calendar.MARCH, 10).isSelected());
+    assertEquals(RangeState.NONE, cell(model, Calendar.MARCH, 15).getRangeState());
+  }
+
+  @Test public void clickBeforeTheFirstEndpointRestartsTheRange() {
+    CalendarModel model = newModel(Collections.<Date>emptyList());
+    model.selectionMode = CalendarModel.Mode.RANGE;
+    select(model, date(Calendar.MARCH, 10));
+
+    select(model, date(Calendar.MARCH, 5));
+
+    assertEquals(1, model.getSelectionCount());
+    assertEquals(date(Calendar.MARCH, 5), model.getSelectedDate());
+    assertFalse(cell(model, Calendar.MARCH, 10).isSelected());
+  }
+
+  @Test public void moveRangeEndpoint() {
+    CalendarModel model = newModel(Collections.<Date>emptyList());
+    model.selectionMode = CalendarModel.Mode.RANGE;
+    select(model, date(Calendar.MARCH, 10));
+    select(model, date(Calendar.MARCH, 20));
+
+    assertTrue(model.moveRangeEndpoint(RangeState.LAST, cell(model, Calendar.MARCH, 15)));
+    assertEquals(days(Calendar.MARCH, 10, 15), model.getSelectedDates());
+    assertEquals(RangeState.LAST, cell(model, Calendar.MARCH, 15).getRangeState());
+    assertFalse(cell(model, Calendar.MARCH, 20).isSelected());
+    assertEquals(RangeState.NONE, cell(model, Calendar.MARCH, 17).getRangeState());
+
+    assertTrue(model.moveRangeEndpoint(RangeState.FIRST, cell(model, Calendar.FEBRUARY, 27)));
+    assertEquals(date(Calendar.FEBRUARY, 27), model.getSelectedDate());
+    assertEquals(17, model.getSelectedDates().size());
+    assertEquals(RangeState.MIDDLE, cell(model, Calendar.MARCH, 10).getRangeState());
+    assertEquals(2, model.getSelectionCount());
+  }
+
+  @Test public void moveRangeEndpointRejectsAnEmptyRange() {
+    CalendarModel model = newModel(Collections.<Date>emptyList());
+    model.selectionMode = CalendarModel.Mode.RANGE;
+    select(model, date(Calendar.MARCH, 10));
+
+    // Only one endpoint so far.
+    assertFalse(model.moveRangeEndpoint(RangeState.LAST, cell(model, Calendar.MARCH, 12)));
+
+    select(model, date(Calendar.MARCH, 20));
+    assertFalse(model.moveRangeEndpoint(RangeState.FIRST, cell(model, Calendar.MARCH, 20)));
+    assertFalse(model.moveRangeEndpoint(RangeState.LAST, cell(model, Calendar.MARCH, 2)));
+    assertEquals(days(Calendar.MARCH, 10, 20), model.getSelectedDates());
+  }
+
+  @Test public void rangeKeepsItsMiddleDaysWhenTheWindowSlides() {
+    CalendarModel model = newModel(Collections.<Date>emptyList());
+    model.selectionMode = CalendarModel.Mode.RANGE;
+    select(model, date(Calendar.MARCH, 10));
+    select(model, date(Calendar.MARCH, 20));
+
+    model.slideWindow(5);
+
+    assertEquals(days(Calendar.MARCH, 10, 20), model.getSelectedDates());
+  }
+
+  @Test public void saveAndRestoreRange() {
+    CalendarModel model =
+        newModel(Arrays.asList(date(Calendar.APRIL, 1), date(Calendar.APRIL, 2)));
+    model.selectionMode = CalendarModel.Mode.RANGE;
+    model.highlightDates(millis(date(Calendar.MAY, 4), date(Calendar.MAY, 6)), 2);
+    model.setHighlightCategory(date(Calendar.JUNE, 1), date(Calendar.JUNE, 3), 2);
+    select(model, date(Calendar.MARCH, 10));
+    select(model, date(Calendar.MARCH, 20));
+
+    CalendarModel restored = restore(model.saveState());
+
+    assertSame(CalendarModel.Mode.RANGE, restored.selectionMode);
+    assertEquals(model.getMonthCount(), restored.getMonthCount());
+    assertEquals(model.getSelectedDates(), restored.getSelectedDates());
+    assertEquals(2, restored.getSelectionCount());
+    assertEquals(RangeState.MIDDLE, cell(restored, Calendar.MARCH, 15).getRangeState());
+    assertTrue(cell(restored, Calendar.APRIL, 2).isClosed());
+    assertFalse(cell(restored, Calendar.APRIL, 3).isClosed());
+    assertTrue(cell(restored, Calendar.MAY, 6).isHighlighted());
+    assertFalse(cell(restored, Calendar.MAY, 5).isHighlighted());
+    assertEquals(2, restored.getHighlightCategory(date(Calendar.JUNE, 3)));
+    assertEquals(0, restored.getHighlightCategory(date(Calendar.JUNE, 4)));
+  }
+
+  @Test public void saveAndRestoreMultiple() {
+    CalendarModel model = newModel(Collections.<Date>emptyList());
+    model.selectionMode = CalendarModel.Mode.MULTIPLE;
+    long[] selected = millis(date(Calendar.JANUARY, 5), date(Calendar.JANUARY, 6),
+        date(Calendar.AUGUST, 30), date(Calendar.DECEMBER, 31));
+    assertEquals(4, model.selectDates(selected, selected.length));
+
+    CalendarModel restored = restore(model.saveState());
+
+    assertSame(CalendarModel.Mode.MULTIPLE, restored.selectionMode);
+    assertEquals(model.getSelectedDates(), restored.getSelectedDates());
+    assertTrue(cell(restored, Calendar.AUGUST, 30).isSelected());
+  }
+
+  @Test public void saveAndRestoreNothingSelected() {
+    CalendarModel restored = restore(newModel(Collections.<Date>emptyList()).saveState());
+
+    assertNull(restored.getSelectedDate());
+    assertEquals(12, restored.getMonthCount());
+  }
+
+  @Test public void restoreRejectsOtherState() {
+    try {
+      restore(new int[] {42, 0, 0, 0});
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test public void invalidateSelectabilityOnlyAsksAboutDaysInTheCalendar() {
+    final Set<Date> closed = new HashSet<Date>();
+    final List<Date> asked = new ArrayList<Date>();
+    CalendarModel model = newModel(Collections.<Date>emptyList(),
+        new CalendarModel.SelectableFilter() {
+          @Override public boolean isDateSelectable(Date date) {
+            asked.add(date);
+            return !closed.contains(date);
+          }
+        });
+    assertTrue(cell(model, Calendar.DECEMBER, 30).isSelectable());
+    closed.add(date(Calendar.DECEMBER, 30));
+    asked.clear();
+
+    Calendar farFuture = Calendar.getInstance(LOCALE);
+    farFuture.clear();
+    farFuture.set(9999, Calendar.DECEMBER, 31);
+    model.invalidateSelectability(new Date(0), farFuture.getTime());
+
+    assertTrue(asked.contains(date(Calendar.DECEMBER, 30)));
+    for (Date date : asked) {
+      assertTrue(date.toString(), CalendarModel.betweenDates(date, model.minCal, model.maxCal));
+    }
+    assertFalse(model.isSelectable(date(Calendar.DECEMBER, 30)));
+    assertTrue(model.isSelectable(date(Calendar.DECEMBER, 29)));
+  }
+
+  @Test public void invalidateSelectabilityOutsideTheCalendarDoesNothing() {
+    CalendarModel model = newModel(Collections.<Date>emptyList());
+    model.dirtyMonths.clear();
+    Calendar cal = Calendar.getInstance(LOCALE);
+    cal.clear();
+    cal.set(2020, Calendar.JANUARY, 1);
+    Date from = cal.getTime();
+    cal.set(2020, Calendar.JUNE, 1);
+
+    model.invalidateSelectability(from, cal.getTime());
+
+    assertTrue(model.dirtyMonths.isEmpty());
+  }
+
+  @Test public void invalidateSelectabilityRejectsNullDates() {
+    CalendarModel model = newModel(Collections.<Date>emptyList());
+    try {
+      model.invalidateSelectability(null, date(Calendar.MARCH, 1));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      model.invalidateSelectability(date(Calendar.MARCH, 1), null);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test public void monthStartIsTheFirstOfTheMonthWhateverTheMinDate() {
+    Calendar max = Calendar.getInstance(LOCALE);
+    max.clear();
+    max.set(2016, Calendar.APRIL, 10);
+    CalendarModel model = new CalendarModel(date(Calendar.JANUARY, 31), max.getTime(),
+        Collections.<Date>emptyList(), LOCALE, MONTH_NAME_FORMAT, DAY_NAME_FORMAT, null);
+
+    assertEquals(date(Calendar.JANUARY, 1), model.getMonthStart(0));
+    assertEquals(date(Calendar.FEBRUARY, 1), model.getMonthStart(1));
+    Calendar april = Calendar.getInstance(LOCALE);
+    april.clear();
+    april.set(2016, Calendar.APRIL, 1);
+    assertEquals(april.getTime(), model.getMonthStart(15));
+    // The month descriptor's date is minDate plus n months, clipped to the month's length.
+    assertEquals(date(Calendar.FEBRUARY, 28), model.getMonth(1).getDate());
+  }
+
+  /** A model for all of 2015. */
+  private static CalendarModel newModel(Collection<Date> daysClosed) {
+    return newModel(daysClosed, null);
+  }
+
+  private static CalendarModel newModel(Collection<Date> daysClosed,
+      CalendarModel.SelectableFilter filter) {
+    Calendar max = Calendar.getInstance(LOCALE);
+    max.clear();
+    max.set(2016, Calendar.JANUARY, 1);
+    return new CalendarModel(date(Calendar.JANUARY, 1), max.getTime(), daysClosed, LOCALE,
+        MONTH_NAME_FORMAT, DAY_NAME_FORMAT, filter);
+  }
+
+  private static CalendarModel restore(int[] state) {
+    return CalendarModel.restoreState(state, LOCALE, MONTH_NAME_FORMAT, DAY_NAME_FORMAT, null);
+  }
+
+  /** Clicks {@code date} the way CalendarPickerView does. */
+  private static boolean select(CalendarModel model, Date date) {
+    return model.doSelectDate(date, model.getMonthCellWithIndexByDate(date).cell);
+  }
+
+  private static MonthCellDescriptor cell(CalendarModel model, int month, int dayOfMonth) {
+    return model.getMonthCellWithIndexByDate(date(month, dayOfMonth)).cell;
+  }
+
+  /** Midnight of a day in 2015. */
+  private static Date date(int month, int dayOfMonth) {
+    Calendar cal = Calendar.getInstance(LOCALE);
+    cal.clear();
+    cal.set(2015, month, dayOfMonth);
+    return cal.getTime();
+  }
+
+  private static List<Date> days(int month, int first, int last) {
+    Date[] days = new Date[last - first + 1];
+    for (int i = 0; i < days.length; i++) {
+      days[i] = date(month, first + i);
+    }
+    return Arrays.asList(days);
+  }
+
+  private static long[] millis(Date... dates) {
+    long[] millis = new long[dates.length];
+    for (int i = 0; i < dates.length; i++) {
+      millis[i] = dates[i].getTime();
+    }
+    return millis;
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import org.junit.Test;
+
+import static java.util.Calendar.DAY_OF_MONTH;
+import static java.util.Calendar.DAY_OF_WEEK;
+import static java.util.Calendar.HOUR_OF_DAY;
+import static java.util.Calendar.MONTH;
+import static java.util.Calendar.WEEK_OF_MONTH;
+import static java.util.Calendar.YEAR;
+import static org.junit.Assert.assertEquals;
+
+public class DayIndexTest {
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+  @Test public void civilConversionsMatchCalendar() {
+    Calendar cal = new GregorianCalendar(UTC, Locale.US);
+    cal.clear();
+    cal.set(1850, Calendar.JANUARY, 1);
+    while (cal.get(YEAR) < 2150) {
+      int epochDay = (int) Math.floor(cal.getTimeInMillis() / (double) DayIndex.MILLIS_PER_DAY);
+      int year = cal.get(YEAR);
+      int month = cal.get(MONTH);
+      int dayOfMonth = cal.get(DAY_OF_MONTH);
+      String date = year + "-" + (month + 1) + "-" + dayOfMonth;
+
+      assertEquals(date, epochDay, DayIndex.fromCivil(year, month, dayOfMonth));
+      assertEquals(date, year * 12 + month, DayIndex.yearMonth(epochDay));
+      assertEquals(date, dayOfMonth, DayIndex.dayOfMonth(epochDay));
+      assertEquals(date, cal.get(DAY_OF_WEEK), DayIndex.dayOfWeek(epochDay));
+      cal.add(DAY_OF_MONTH, 1);
+    }
+  }
+
+  @Test public void firstOfNextMonthRollsOverTheYear() {
+    assertEquals(DayIndex.fromCivil(2016, Calendar.JANUARY, 1),
+        DayIndex.firstOfNextMonth(DayIndex.fromCivil(2015, Calendar.DECEMBER, 31)));
+    assertEquals(DayIndex.fromCivil(2016, Calendar.MARCH, 1),
+        DayIndex.firstOfNextMonth(DayIndex.fromCivil(2016, Calendar.FEBRUARY, 29)));
+  }
+
+  @Test public void epochDayUsesTheCalendarsTimeZone() {
+    TimeZone zone = TimeZone.getTimeZone("America/Los_Angeles");
+    Calendar cal = new GregorianCalendar(zone, Locale.US);
+    DayIndex index = new DayIndex(cal);
+
+    cal.clear();
+    cal.set(2015, Calendar.MARCH, 8, 23, 30);
+    assertEquals(DayIndex.fromCivil(2015, Calendar.MARCH, 8), index.epochDay(cal));
+    cal.set(HOUR_OF_DAY, 0);
+    assertEquals(DayIndex.fromCivil(2015, Calendar.MARCH, 8), index.epochDay(cal.getTime()));
+
+    cal.set(1969, Calendar.DECEMBER, 31, 23, 59);
+    assertEquals(-1, index.epochDay(cal.getTimeInMillis()));
+  }
+
+  @Test public void monthIndexIsRelativeToTheFirstMonth() {
+    Calendar first = new GregorianCalendar(UTC, Locale.US);
+    first.clear();
+    first.set(2015, Calendar.NOVEMBER, 20);
+    DayIndex index = new DayIndex(first);
+
+    assertEquals(0, index.monthIndex(DayIndex.fromCivil(2015, Calendar.NOVEMBER, 1)));
+    assertEquals(2, index.monthIndex(DayIndex.fromCivil(2016, Calendar.JANUARY, 31)));
+    assertEquals(-1, index.monthIndex(DayIndex.fromCivil(2015, Calendar.OCTOBER, 31)));
+    assertEquals(2016 * 12 + Calendar.JANUARY, index.yearMonthAt(2));
+  }
+
+  @Test public void weekAndColumnMatchCalendar() {
+    assertGridMatchesCalendar(Locale.US);
+    assertGridMatchesCalendar(Locale.FRANCE);
+  }
+
+  private static void assertGridMatchesCalendar(Locale locale) {
+    Calendar cal = new GregorianCalendar(UTC, locale);
+    // Grid rows start at the row holding the 1st, however few of its days are in the month.
+    cal.setMinimalDaysInFirstWeek(1);
+    cal.clear();
+    cal.set(2015, Calendar.JANUARY, 1);
+    DayIndex index = new DayIndex(cal);
+    while (cal.get(YEAR) < 2017) {
+      int epochDay = index.epochDay(cal);
+      String date = locale + " " + cal.getTime();
+
+      assertEquals(date, cal.get(WEEK_OF_MONTH) - 1, index.week(epochDay));
+      assertEquals(date, (cal.get(DAY_OF_WEEK) - cal.getFirstDayOfWeek() + 7) % 7,
+          index.column(epochDay));
+      cal.add(DAY_OF_MONTH, 1);
+    }
+  }
+}
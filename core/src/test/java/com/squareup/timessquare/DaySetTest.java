@@ -0,0 +1,72 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DaySetTest {
+  @Test public void addingEarlierDaysRebases() {
+    DaySet days = new DaySet();
+    days.add(16500);
+    days.add(16400);
+    days.add(-1000);
+    days.add(16499);
+
+    assertTrue(days.contains(16500));
+    assertTrue(days.contains(16400));
+    assertTrue(days.contains(-1000));
+    assertFalse(days.contains(16401));
+    assertFalse(days.contains(-1001));
+    assertEquals(4, days.size());
+    assertEquals(-1000, days.firstDay());
+    assertArrayEquals(new int[] {-1000, -1000, 16400, 16400, 16499, 16500}, days.toRuns());
+  }
+
+  @Test public void nextDay() {
+    DaySet days = new DaySet();
+    assertEquals(DaySet.NONE, days.firstDay());
+    days.add(10);
+    days.add(20);
+
+    assertEquals(10, days.nextDay(-5));
+    assertEquals(20, days.nextDay(11));
+    assertEquals(DaySet.NONE, days.nextDay(21));
+  }
+
+  @Test public void removeRange() {
+    DaySet days = new DaySet();
+    days.addRange(10, 20);
+
+    days.removeRange(5, 12);
+    assertArrayEquals(new int[] {13, 20}, days.toRuns());
+
+    days.removeRange(15, 15);
+    assertArrayEquals(new int[] {13, 14, 16, 20}, days.toRuns());
+
+    // Entirely before the base day: nothing to remove.
+    days.removeRange(-50, 0);
+    days.remove(-50);
+    assertEquals(7, days.size());
+
+    days.removeRange(0, 100);
+    assertTrue(days.isEmpty());
+  }
+
+  @Test public void toRunsGrowsPastItsInitialCapacity() {
+    DaySet days = new DaySet();
+    int[] expected = new int[20];
+    for (int run = 0; run < 10; run++) {
+      days.addRange(run * 10, run * 10 + run);
+      expected[run * 2] = run * 10;
+      expected[run * 2 + 1] = run * 10 + run;
+    }
+    assertArrayEquals(expected, days.toRuns());
+
+    days.clear();
+    assertArrayEquals(new int[0], days.toRuns());
+  }
+}
@@ -4,112 +4,85 @@ package com.squareup.timessquare;
 
 import android.content.Context;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.widget.TextView;
 
 public class CalendarCellView extends TextView {
-  private static final int[] STATE_SELECTABLE = {
-      R.attr.state_selectable
-  };
-  private static final int[] STATE_CURRENT_MONTH = {
-      R.attr.state_current_month
-  };
-  private static final int[] STATE_TODAY = {
-      R.attr.state_today
-  };
-  private static final int[] STATE_DAY_CLOSED = {
-      R.attr.state_day_closed
-  };
-  private static final int[] STATE_HIGHLIGHTED = {
-      R.attr.state_highlighted
-  };
-  private static final int[] STATE_RANGE_FIRST = {
-      R.attr.state_range_first
-  };
-  private static final int[] STATE_RANGE_MIDDLE = {
-      R.attr.state_range_middle
-  };
-  private static final int[] STATE_RANGE_LAST = {
-      R.attr.state_range_last
-  };
-
-  private boolean isSelectable = false;
-  private boolean isCurrentMonth = false;
-  private boolean isToday = false;
-  private boolean isClosed = false;
-  private boolean isHighlighted = false;
-  private RangeState rangeState = RangeState.NONE;
+  /** Calendar state of this cell as {@link CellStates} flags, without the View states. */
+  private int cellState;
+  /** Set while {@link #setCellState} applies the View states, which each refresh on their own. */
+  private boolean deferRefresh;
 
   @SuppressWarnings("UnusedDeclaration") //
   public CalendarCellView(Context context, AttributeSet attrs) {
     super(context, attrs);
   }
 
-  public void setSelectable(boolean isSelectable) {
-    this.isSelectable = isSelectable;
+  /**
+   * Sets every state of this cell at once from {@link CellStates} flags, including whether it's
+   * enabled and selected.  The drawable state is refreshed once, and only if something changed.
+   */
+  void setCellState(int cellState) {
+    int calendarState = cellState & ~CellStates.VIEW_STATES;
+    boolean enabled = (cellState & CellStates.ENABLED) != 0;
+    boolean selected = (cellState & CellStates.SELECTED) != 0;
+    if (this.cellState == calendarState && isEnabled() == enabled && isSelected() == selected) {
+      return;
+    }
+    this.cellState = calendarState;
+    deferRefresh = true;
+    setEnabled(enabled);
+    setSelected(selected);
+    deferRefresh = false;
     refreshDrawableState();
   }
 
+  private void setCalendarState(int calendarState) {
+    if (cellState != calendarState) {
+      cellState = calendarState;
+      refreshDrawableState();
+    }
+  }
+
+  private void setFlag(int flag, boolean set) {
+    setCalendarState(set ? cellState | flag : cellState & ~flag);
+  }
+
+  public void setSelectable(boolean isSelectable) {
+    setFlag(CellStates.SELECTABLE, isSelectable);
+  }
+
   public void setCurrentMonth(boolean isCurrentMonth) {
-    this.isCurrentMonth = isCurrentMonth;
-    refreshDrawableState();
+    setFlag(CellStates.CURRENT_MONTH, isCurrentMonth);
   }
 
   public void setToday(boolean isToday) {
-    this.isToday = isToday;
-    refreshDrawableState();
+    setFlag(CellStates.TODAY, isToday);
   }
 
   public void setClosed(boolean isClosed) {
-    this.isClosed = isClosed;
-    refreshDrawableState();
+    setFlag(CellStates.CLOSED, isClosed);
   }
 
   public void setRangeState(RangeState rangeState) {
-    this.rangeState = rangeState;
-
-    refreshDrawableState();
+    setCalendarState(CellStates.withRangeState(cellState, rangeState));
   }
 
   public void setHighlighted(boolean highlighted) {
-    isHighlighted = highlighted;
-    refreshDrawableState();
+    setFlag(CellStates.HIGHLIGHTED, highlighted);
   }
 
-  @Override protected int[] onCreateDrawableState(int extraSpace) {
-    final int[] drawableState = super.onCreateDrawableState(extraSpace + 8);
-
-    if (isSelectable) {
-      mergeDrawableStates(drawableState, STATE_SELECTABLE);
-    }
-
-    if (isCurrentMonth) {
-      mergeDrawableStates(drawableState, STATE_CURRENT_MONTH);
-    }
-
-    if (isToday) {
-      mergeDrawableStates(drawableState, STATE_TODAY);
-    }
-
-    if (isClosed) {
-      mergeDrawableStates(drawableState, STATE_DAY_CLOSED);
-    }
-
-    if (isHighlighted) {
-      mergeDrawableStates(drawableState, STATE_HIGHLIGHTED);
+  @Override public void refreshDrawableState() {
+    if (!deferRefresh) {
+      super.refreshDrawableState();
     }
+  }
 
-    if (rangeState == RangeState.FIRST) {
-      mergeDrawableStates(drawableState, STATE_RANGE_FIRST);
-    } else if (rangeState == RangeState.MIDDLE) {
-      mergeDrawableStates(drawableState, STATE_RANGE_MIDDLE);
-    } else if (rangeState == RangeState.LAST) {
-      mergeDrawableStates(drawableState, STATE_RANGE_LAST);
+  @Override protected int[] onCreateDrawableState(int extraSpace) {
+    final int[] cellStateSet = CellStates.stateSet(cellState);
+    final int[] drawableState = super.onCreateDrawableState(extraSpace + cellStateSet.length);
+    if (cellStateSet.length > 0) {
+      mergeDrawableStates(drawableState, cellStateSet);
     }
-
-    if (rangeState == RangeState.MIDDLE && isClosed == true)
-        Log.d("Middle State", "Middle State should be blue");
-
     return drawableState;
   }
 }
@@ -105,7 +105,6 @@ public class CalendarGridView extends ViewGroup {
       setMeasuredDimension(getMeasuredWidth(), getMeasuredHeight());
       return;
     }
-    long start = System.currentTimeMillis();
     oldWidthMeasureSize = widthMeasureSize;
     int cellSize = widthMeasureSize / 7;
     // Remove any extra pixels since /7 is unlikely to give whole nums.
@@ -115,7 +114,7 @@ public class CalendarGridView extends ViewGroup {
     final int rowHeightSpec = makeMeasureSpec(cellSize, EXACTLY);
     for (int c = 0, numChildren = getChildCount(); c < numChildren; c++) {
       final View child = getChildAt(c);
-      if (child.getVisibility() == View.VISIBLE) {
+      if (child.getVisibility() != View.GONE) {
         if (c == 0) { // It's the header: height should be wrap_content.
           measureChild(child, rowWidthSpec, makeMeasureSpec(cellSize, AT_MOST));
         } else {
@@ -126,11 +125,9 @@ public class CalendarGridView extends ViewGroup {
     }
     final int measuredWidth = widthMeasureSize + 2; // Fudge factor to make the borders show up.
     setMeasuredDimension(measuredWidth, totalHeight);
-    Logr.d("Grid.onMeasure %d ms", System.currentTimeMillis() - start);
   }
 
   @Override protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-    long start = System.currentTimeMillis();
     top = 0;
     for (int c = 0, numChildren = getChildCount(); c < numChildren; c++) {
       final View child = getChildAt(c);
@@ -138,7 +135,6 @@ public class CalendarGridView extends ViewGroup {
       child.layout(left, top, right, top + rowHeight);
       top += rowHeight;
     }
-    Logr.d("Grid.onLayout %d ms", System.currentTimeMillis() - start);
   }
 
   public void setNumRows(int numRows) {
@@ -0,0 +1,31 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+/**
+ * Receives timings of the picker's hot paths.  Install one with
+ * {@link CalendarPickerView#setMetrics(CalendarMetrics)}; {@link HistogramCalendarMetrics} keeps
+ * histograms an app can read or export.
+ * <p>
+ * Calls come on the main thread, except for {@link Event#MODEL_BUILD} from
+ * {@link CalendarPickerView#initAsync}, which comes on its executor's thread.  Implementations
+ * should be quick and shouldn't allocate.
+ */
+public interface CalendarMetrics {
+  enum Event {
+    /** Building the calendar model in an init method. */
+    MODEL_BUILD,
+    /** Binding one month's cells to its view. */
+    MONTH_BIND,
+    /** Measuring the picker, including the months it shows. */
+    MEASURE,
+    /** Laying out the picker, including the months it shows. */
+    LAYOUT,
+    /** Dispatching one touch event to the picker. */
+    TOUCH,
+    /** Applying a selection or highlight change and rebinding the affected months. */
+    SELECTION_UPDATE
+  }
+
+  /** Called once per occurrence of {@code event}, which took {@code durationNanos}. */
+  void record(Event event, long durationNanos);
+}
@@ -0,0 +1,454 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.widget.Scroller;
+import java.util.Date;
+
+import static android.view.View.MeasureSpec.EXACTLY;
+import static android.view.View.MeasureSpec.UNSPECIFIED;
+import static android.view.View.MeasureSpec.makeMeasureSpec;
+
+/**
+ * Shows the months of a {@link CalendarPickerView} one per page, swiped horizontally.  Exactly
+ * three month views exist whatever the date range: the current month and its two neighbours.
+ * When a page turn lands, the view that fell off the far side is moved next to the new current
+ * month and bound to it while the UI is idle, along with building the cells of the months after
+ * that, so swiping never inflates a view or builds a month.
+ * <p>
+ * Selection, highlights, filters and every other setting stay with the calendar, which does the
+ * work for both views and can be left {@code GONE}:
+ * <pre>
+ * calendar.init(minDate, maxDate);
+ * pager.setCalendar(calendar);
+ * </pre>
+ */
+public class CalendarPagerView extends ViewGroup {
+  private static final int PAGES = 3;
+  private static final int NO_POSITION = -1;
+  /** Longest a page takes to settle after it's released. */
+  private static final int SETTLE_MS = 250;
+  /** Months past each neighbour whose cells are built while the UI is idle. */
+  static final int PREFETCH_MONTHS = 1;
+
+  private final LayoutInflater inflater;
+  private final Scroller scroller;
+  private final int touchSlop;
+  private final int minFlingVelocity;
+  /** Month views, each one holding the months whose position is its index modulo 3. */
+  private final MonthRenderer[] pages = new MonthRenderer[PAGES];
+  /** Position each page is laid out at, and the one it was last bound to. */
+  private final int[] pagePositions = new int[PAGES];
+  private final int[] boundPositions = new int[PAGES];
+  private CalendarPickerView calendar;
+  /** Model the pages were created for; null until the calendar is initialized. */
+  private CalendarModel shownModel;
+  private int current;
+
+  private VelocityTracker velocityTracker;
+  private float downX;
+  private float downY;
+  private float lastX;
+  private boolean dragging;
+  private boolean idleScheduled;
+  private final MessageQueue.IdleHandler idleWork = new MessageQueue.IdleHandler() {
+    @Override public boolean queueIdle() {
+      // One month per idle pass, so that a bind never delays a frame by much.
+      if (doIdleWork()) {
+        return true;
+      }
+      idleScheduled = false;
+      return false;
+    }
+  };
+
+  public CalendarPagerView(Context context, AttributeSet attrs) {
+    super(context, attrs);
+    inflater = LayoutInflater.from(context);
+    scroller = new Scroller(context);
+    ViewConfiguration configuration = ViewConfiguration.get(context);
+    touchSlop = configuration.getScaledTouchSlop();
+    minFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+  }
+
+  /**
+   * Shows the months of {@code calendar}, starting at its selected date or today.  The pager
+   * follows the calendar from then on: re-initializing it, selecting dates or changing its style
+   * shows up here too.  Only one pager can follow a calendar; null detaches this one.
+   */
+  public void setCalendar(CalendarPickerView calendar) {
+    if (this.calendar != null) {
+      this.calendar.pager = null;
+    }
+    if (calendar != null) {
+      if (calendar.pager != null) {
+        calendar.pager.setCalendar(null);
+      }
+      calendar.pager = this;
+    }
+    this.calendar = calendar;
+    reset();
+  }
+
+  /**
+   * Returns midnight of the 1st of the month shown, even when the calendar starts mid-month, or
+   * null if there's no initialized calendar.
+   */
+  public Date getCurrentMonth() {
+    return shownModel == null ? null : shownModel.getMonthStart(current);
+  }
+
+  /**
+   * Shows the month containing {@code date}.  Only a neighbouring month is scrolled to when
+   * {@code smoothScroll} is set; any other is jumped to.
+   */
+  public void showMonth(Date date, boolean smoothScroll) {
+    if (shownModel == null) {
+      throw new IllegalStateException("Call setCalendar() with an initialized calendar first.");
+    }
+    shownModel.validateDate(date);
+    int position = shownModel.getMonthIndex(date);
+    if (smoothScroll && Math.abs(position - current) <= 1) {
+      settleTo(position);
+    } else {
+      jumpTo(position);
+    }
+  }
+
+  /**
+   * Re-creates the pages if the calendar was initialized with a new model since they were made,
+   * and binds them afresh.
+   */
+  void reset() {
+    CalendarModel model = calendar == null ? null : calendar.model;
+    if (model != shownModel) {
+      removeAllViews();
+      shownModel = model;
+      if (model == null) {
+        return;
+      }
+      for (int slot = 0; slot < PAGES; slot++) {
+        MonthRenderer page = calendar.createMonthView(this, inflater);
+        page.setFixedHeight(true);
+        pages[slot] = page;
+        addView((View) page);
+      }
+      int target = model.getScrollTarget();
+      current = target >= 0 ? target : 0;
+    } else if (model == null) {
+      return;
+    }
+    for (int slot = 0; slot < PAGES; slot++) {
+      boundPositions[slot] = NO_POSITION;
+    }
+    jumpTo(clamp(current));
+  }
+
+  /** Re-binds the pages whose months are flagged dirty in the model. */
+  void rebindDirtyPages() {
+    if (shownModel == null) {
+      return;
+    }
+    for (int slot = 0; slot < PAGES; slot++) {
+      int position = boundPositions[slot];
+      if (position != NO_POSITION && shownModel.dirtyMonths.get(position)) {
+        calendar.bindMonthView(pages[slot], position);
+      }
+    }
+  }
+
+  /** Follows the calendar's unbounded window moving {@code shift} months later. */
+  void onWindowSlid(int shift) {
+    if (shownModel == null) {
+      return;
+    }
+    MonthRenderer[] oldPages = pages.clone();
+    int[] oldPositions = pagePositions.clone();
+    int[] oldBound = boundPositions.clone();
+    for (int oldSlot = 0; oldSlot < PAGES; oldSlot++) {
+      int slot = slot(oldPositions[oldSlot] - shift);
+      pages[slot] = oldPages[oldSlot];
+      boundPositions[slot] = oldBound[oldSlot] == NO_POSITION ? NO_POSITION
+          : oldBound[oldSlot] - shift;
+    }
+    jumpTo(clamp(current - shift));
+  }
+
+  /** Returns the position nearest {@code position} that has a month. */
+  private int clamp(int position) {
+    return Math.max(0, Math.min(position, shownModel.getMonthCount() - 1));
+  }
+
+  private static int slot(int position) {
+    return (position % PAGES + PAGES) % PAGES;
+  }
+
+  /** Shows {@code position} with no animation; only it is bound right away. */
+  private void jumpTo(int position) {
+    scroller.abortAnimation();
+    current = position;
+    for (int offset = -1; offset <= 1; offset++) {
+      place(current + offset);
+    }
+    bind(current);
+    scrollTo(current * getWidth(), 0);
+    calendar.requestAvailability(current);
+    scheduleIdleWork();
+  }
+
+  /** Makes {@code position} the current month and scrolls to it. */
+  private void settleTo(int position) {
+    if (position != current) {
+      current = position;
+      // The page moved here is off screen for the whole scroll.
+      place(current - 1);
+      place(current + 1);
+      bind(current);
+      calendar.requestAvailability(current);
+    }
+    int dx = current * getWidth() - getScrollX();
+    int duration = getWidth() == 0 ? 0 : SETTLE_MS * Math.abs(dx) / getWidth();
+    scroller.startScroll(getScrollX(), 0, dx, 0, duration);
+    invalidate();
+    scheduleIdleWork();
+  }
+
+  /** Lays the page for {@code position} out in its place, hiding it if there's no such month. */
+  private void place(int position) {
+    int slot = slot(position);
+    pagePositions[slot] = position;
+    View page = (View) pages[slot];
+    boolean inRange = position >= 0 && position < shownModel.getMonthCount();
+    page.setVisibility(inRange ? VISIBLE : INVISIBLE);
+    page.offsetLeftAndRight(position * getWidth() - page.getLeft());
+  }
+
+  private void bind(int position) {
+    if (position < 0 || position >= shownModel.getMonthCount()) {
+      return;
+    }
+    int slot = slot(position);
+    if (boundPositions[slot] != position) {
+      calendar.bindMonthView(pages[slot], position);
+      boundPositions[slot] = position;
+    }
+  }
+
+  private void scheduleIdleWork() {
+    if (!idleScheduled) {
+      idleScheduled = true;
+      Looper.myQueue().addIdleHandler(idleWork);
+    }
+  }
+
+  /**
+   * Does one step of binding the neighbouring pages, building the cells of the months past them,
+   * and recentering an unbounded calendar.  Returns false once there's nothing left to do.
+   */
+  private boolean doIdleWork() {
+    if (shownModel == null) {
+      return false;
+    }
+    for (int offset = -1; offset <= 1; offset += 2) {
+      int position = current + offset;
+      if (position >= 0 && position < shownModel.getMonthCount()
+          && boundPositions[slot(position)] != position) {
+        bind(position);
+        return true;
+      }
+    }
+    for (int i = 2; i <= 1 + PREFETCH_MONTHS; i++) {
+      if (current + i < shownModel.getMonthCount() && !shownModel.isResident(current + i)) {
+        shownModel.getMonthCells(current + i);
+        return true;
+      }
+      if (current - i >= 0 && !shownModel.isResident(current - i)) {
+        shownModel.getMonthCells(current - i);
+        return true;
+      }
+    }
+    if (!dragging && scroller.isFinished() && calendar.nearWindowEdge(current)) {
+      calendar.recenterWindow(current);
+      return true;
+    }
+    return false;
+  }
+
+  /** Drops the pending idle work; the next page shown schedules it again. */
+  @Override protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    if (idleScheduled) {
+      idleScheduled = false;
+      Looper.myQueue().removeIdleHandler(idleWork);
+    }
+  }
+
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    int width = MeasureSpec.getSize(widthMeasureSpec);
+    int childWidthSpec = makeMeasureSpec(width, EXACTLY);
+    int childHeightSpec = makeMeasureSpec(0, UNSPECIFIED);
+    int height = 0;
+    for (int c = 0, numChildren = getChildCount(); c < numChildren; c++) {
+      View child = getChildAt(c);
+      child.measure(childWidthSpec, childHeightSpec);
+      height = Math.max(height, child.getMeasuredHeight());
+    }
+    setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+  }
+
+  @Override protected void onLayout(boolean changed, int l, int t, int r, int b) {
+    if (shownModel == null) {
+      return;
+    }
+    int width = r - l;
+    for (int slot = 0; slot < PAGES; slot++) {
+      View page = (View) pages[slot];
+      int left = pagePositions[slot] * width;
+      page.layout(left, 0, left + width, page.getMeasuredHeight());
+    }
+    if (changed && !dragging) {
+      scroller.abortAnimation();
+      scrollTo(current * width, 0);
+    }
+  }
+
+  @Override public void computeScroll() {
+    if (scroller.computeScrollOffset()) {
+      scrollTo(scroller.getCurrX(), 0);
+      invalidate();
+    }
+  }
+
+  /**
+   * Feeds the velocity tracker.  Each event passes through here once, whether it then goes to
+   * {@link #onInterceptTouchEvent}, {@link #onTouchEvent} or both.
+   */
+  @Override public boolean dispatchTouchEvent(MotionEvent event) {
+    if (shownModel != null) {
+      trackVelocity(event);
+    }
+    return super.dispatchTouchEvent(event);
+  }
+
+  @Override public boolean onInterceptTouchEvent(MotionEvent event) {
+    if (shownModel == null) {
+      return false;
+    }
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        downX = event.getX();
+        downY = event.getY();
+        lastX = downX;
+        if (!scroller.isFinished()) {
+          // Catch a settling page instead of letting the touch land on a cell.
+          scroller.abortAnimation();
+          startDrag();
+        }
+        break;
+      case MotionEvent.ACTION_MOVE:
+        float dx = Math.abs(event.getX() - downX);
+        if (!dragging && dx > touchSlop && dx > Math.abs(event.getY() - downY)) {
+          lastX = event.getX();
+          startDrag();
+        }
+        break;
+      case MotionEvent.ACTION_UP:
+      case MotionEvent.ACTION_CANCEL:
+        endDrag();
+        break;
+      default:
+        break;
+    }
+    return dragging;
+  }
+
+  @Override public boolean onTouchEvent(MotionEvent event) {
+    if (shownModel == null) {
+      return false;
+    }
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        downX = event.getX();
+        downY = event.getY();
+        lastX = downX;
+        return true;
+      case MotionEvent.ACTION_MOVE:
+        if (!dragging && Math.abs(event.getX() - downX) > touchSlop) {
+          startDrag();
+        }
+        if (dragging) {
+          int width = getWidth();
+          int min = Math.max(current - 1, 0) * width;
+          int max = Math.min(current + 1, shownModel.getMonthCount() - 1) * width;
+          int x = getScrollX() + (int) (lastX - event.getX());
+          scrollTo(Math.max(min, Math.min(x, max)), 0);
+          lastX = event.getX();
+        }
+        return true;
+      case MotionEvent.ACTION_UP:
+        if (dragging) {
+          velocityTracker.computeCurrentVelocity(1000);
+          release(velocityTracker.getXVelocity());
+        }
+        endDrag();
+        return true;
+      case MotionEvent.ACTION_CANCEL:
+        if (dragging) {
+          settleTo(current);
+        }
+        endDrag();
+        return true;
+      default:
+        return true;
+    }
+  }
+
+  private void trackVelocity(MotionEvent event) {
+    if (velocityTracker == null) {
+      velocityTracker = VelocityTracker.obtain();
+    }
+    velocityTracker.addMovement(event);
+  }
+
+  /** Starts a swipe; a neighbour the idle work hasn't got to yet is bound now. */
+  private void startDrag() {
+    dragging = true;
+    if (getParent() != null) {
+      getParent().requestDisallowInterceptTouchEvent(true);
+    }
+    bind(current - 1);
+    bind(current + 1);
+  }
+
+  private void endDrag() {
+    dragging = false;
+    if (velocityTracker != null) {
+      velocityTracker.recycle();
+      velocityTracker = null;
+    }
+  }
+
+  /** Settles on the page a fling points to, or else the one mostly on screen. */
+  private void release(float velocity) {
+    float page = getScrollX() / (float) getWidth();
+    int target;
+    if (velocity <= -minFlingVelocity) {
+      target = (int) Math.ceil(page);
+    } else if (velocity >= minFlingVelocity) {
+      target = (int) Math.floor(page);
+    } else {
+      target = Math.round(page);
+    }
+    target = Math.max(current - 1, Math.min(target, current + 1));
+    settleTo(clamp(target));
+  }
+}
@@ -5,37 +5,34 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import android.widget.ListView;
 import android.widget.Toast;
-import java.text.DateFormat;
-import java.text.DateFormatSymbols;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
-import static java.util.Calendar.DATE;
 import static java.util.Calendar.DAY_OF_MONTH;
-import static java.util.Calendar.DAY_OF_WEEK;
-import static java.util.Calendar.HOUR_OF_DAY;
-import static java.util.Calendar.MILLISECOND;
-import static java.util.Calendar.MINUTE;
 import static java.util.Calendar.MONTH;
-import static java.util.Calendar.SECOND;
-import static java.util.Calendar.SUNDAY;
-import static java.util.Calendar.YEAR;
 
 /**
  * Android component to allow picking a date from a calendar view (a list of months).  Must be
@@ -62,26 +59,59 @@ public class CalendarPickerView extends ListView {
     RANGE
   }
 
+  /** Largest code accepted by {@link #setHighlightCategory(Collection, int)}. */
+  public static final int MAX_HIGHLIGHT_CATEGORY = DayCategories.MAX_CATEGORY;
+  /** Number of months served at once by {@link #initUnbounded(Date, Collection, Locale)}. */
+  static final int UNBOUNDED_WINDOW_MONTHS = 1200;
+  /** How close to either end of the unbounded window a bound month triggers a slide. */
+  static final int UNBOUNDED_EDGE_MONTHS = 24;
+  /** Months built ahead of time by {@link #initAsync}, starting at the first one shown. */
+  static final int ASYNC_PREBUILT_MONTHS = 3;
+  /** Fewest and most week rows a month can have; each count gets its own recycled views. */
+  private static final int MIN_WEEKS = 4;
+  private static final int MAX_WEEKS = 6;
+  /** Duration of the smooth scroll to a month whose offset is known. */
+  private static final int SMOOTH_SCROLL_MS = 400;
+  /** Returned by {@link #getDateOffset(Date)} until a month has been laid out. */
+  public static final int NO_OFFSET = -1;
+  /** Months past each end of the visible ones whose cells are built while the UI is idle. */
+  static final int PREFETCH_MONTHS = 2;
+  /** Months either side of a bound month whose availability is loaded along with it. */
+  static final int AVAILABILITY_PREFETCH_MONTHS = 3;
+  /** Distance from the top or bottom edge within which dragging a range endpoint scrolls. */
+  private static final int AUTO_SCROLL_EDGE_DP = 48;
+  /** Scroll per step at the very edge; it shrinks linearly towards the inner end of the zone. */
+  private static final int AUTO_SCROLL_MAX_STEP_DP = 24;
+  private static final int AUTO_SCROLL_INTERVAL_MS = 16;
+
   private final CalendarPickerView.MonthAdapter adapter;
-  private final List<List<List<MonthCellDescriptor>>> cells =
-      new ArrayList<List<List<MonthCellDescriptor>>>();
   final MonthView.Listener listener = new CellClickedListener();
-  final List<MonthDescriptor> months = new ArrayList<MonthDescriptor>();
-  final List<MonthCellDescriptor> selectedCells = new ArrayList<MonthCellDescriptor>();
-  final List<MonthCellDescriptor> highlightedCells = new ArrayList<MonthCellDescriptor>();
-  final List<Calendar> selectedCals = new ArrayList<Calendar>();
-  final List<Calendar> highlightedCals = new ArrayList<Calendar>();
-  private Locale locale;
-  private DateFormat monthNameFormat;
-  private DateFormat weekdayNameFormat;
-  private DateFormat fullDateFormat;
-  private Calendar minCal;
-  private Calendar maxCal;
-  private Calendar monthCounter;
+  /** Everything the calendar shows; null until the first init() completes. */
+  CalendarModel model;
+  /** Pages through the same months one at a time; see {@link CalendarPagerView#setCalendar}. */
+  CalendarPagerView pager;
+  /** Bumped by every init so that a superseded {@link #initAsync} result is dropped. */
+  private int initGeneration;
+  private boolean initPending;
+  private boolean unbounded;
+  private boolean windowSlidePending;
+  private boolean prefetchScheduled;
+  private final MessageQueue.IdleHandler prefetch = new MessageQueue.IdleHandler() {
+    @Override public boolean queueIdle() {
+      // One month per idle pass, so that a prefetch never delays a frame by much.
+      if (prefetchNextMonth()) {
+        return true;
+      }
+      prefetchScheduled = false;
+      return false;
+    }
+  };
+  private final Runnable slideWindow = new Runnable() {
+    @Override public void run() {
+      slideWindow();
+    }
+  };
   private boolean displayOnly;
-  SelectionMode selectionMode;
-  Calendar today;
-  private Collection<Date> daysClosedDates;
   //private StartDay startDay;
   private int dividerColor;
   private int dayBackgroundResId;
@@ -91,12 +121,57 @@ public class CalendarPickerView extends ListView {
   private int headerTextColor;
   private Typeface titleTypeface;
   private Typeface dateTypeface;
+  private boolean canvasMonths;
+  /** Whether every month is as tall as a six-week one, padding shorter ones with blank rows. */
+  private boolean fixedMonthHeight;
+  /** Resolved cell colors shared by the canvas-drawn months; null unless {@link #canvasMonths}. */
+  private CellPalette cellPalette;
 
   private OnDateSelectedListener dateListener;
   private DateSelectableFilter dateConfiguredListener;
+  private final CalendarModel.SelectableFilter selectableFilter =
+      new CalendarModel.SelectableFilter() {
+        @Override public boolean isDateSelectable(Date date) {
+          DateSelectableFilter filter = dateConfiguredListener;
+          return filter == null || filter.isDateSelectable(date);
+        }
+      };
   private OnInvalidDateSelectedListener invalidDateListener =
       new DefaultOnInvalidDateSelectedListener();
   private CellClickInterceptor cellClickInterceptor;
+  private CalendarMetrics metrics;
+  private AvailabilityProvider availabilityProvider;
+  private Executor availabilityExecutor;
+  /** Bumped whenever loaded availability goes stale, so that late results are dropped. */
+  private int availabilityGeneration;
+  /** Months, as {@code year * 12 + month}, whose availability has been asked for. */
+  private final Set<Integer> availabilityPending = new HashSet<Integer>();
+
+  private final int touchSlop;
+  private final int autoScrollEdge;
+  private final int autoScrollMaxStep;
+  /** Range endpoint the current gesture went down on, or null. */
+  private RangeState dragEndpoint;
+  private boolean dragging;
+  private boolean dragMoved;
+  private Date dragDate;
+  private float dragStartX;
+  private float dragStartY;
+  private float dragX;
+  private float dragY;
+  private int autoScrollStep;
+  private boolean autoScrollPosted;
+  private final Runnable autoScroll = new Runnable() {
+    @Override public void run() {
+      autoScrollPosted = false;
+      if (dragging && autoScrollStep != 0) {
+        smoothScrollBy(autoScrollStep, AUTO_SCROLL_INTERVAL_MS);
+        dragTo(dragX, dragY);
+        autoScrollPosted = true;
+        postDelayed(this, AUTO_SCROLL_INTERVAL_MS);
+      }
+    }
+  };
 
   public CalendarPickerView(Context context, AttributeSet attrs) {
     super(context, attrs);
@@ -114,28 +189,29 @@ public class CalendarPickerView extends ListView {
     displayHeader = a.getBoolean(R.styleable.CalendarPickerView_displayHeader, true);
     headerTextColor = a.getColor(R.styleable.CalendarPickerView_headerTextColor,
         res.getColor(R.color.calendar_text_active));
+    canvasMonths = a.getBoolean(R.styleable.CalendarPickerView_canvasMonths, false);
+    fixedMonthHeight = a.getBoolean(R.styleable.CalendarPickerView_fixedMonthHeight, false);
     a.recycle();
+    if (canvasMonths) {
+      cellPalette = new CellPalette(res, dayBackgroundResId, dayTextColorResId);
+    }
+
+    touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+    float density = res.getDisplayMetrics().density;
+    autoScrollEdge = (int) (AUTO_SCROLL_EDGE_DP * density);
+    autoScrollMaxStep = (int) (AUTO_SCROLL_MAX_STEP_DP * density);
 
     adapter = new MonthAdapter();
     setDivider(null);
     setDividerHeight(0);
     setBackgroundColor(bg);
     setCacheColorHint(bg);
-    locale = Locale.getDefault();
-    today = Calendar.getInstance(locale);
-    minCal = Calendar.getInstance(locale);
-    maxCal = Calendar.getInstance(locale);
-    monthCounter = Calendar.getInstance(locale);
-    monthNameFormat = new SimpleDateFormat(context.getString(R.string.month_name_format), locale);
-    weekdayNameFormat = new SimpleDateFormat(context.getString(R.string.day_name_format), locale);
-    fullDateFormat = DateFormat.getDateInstance(DateFormat.MEDIUM, locale);
-    daysClosedDates = new ArrayList<Date>();
 
     if (isInEditMode()) {
-      Calendar nextYear = Calendar.getInstance(locale);
+      Calendar nextYear = Calendar.getInstance();
       nextYear.add(Calendar.YEAR, 1);
 
-      init(new Date(), nextYear.getTime(), daysClosedDates) //
+      init(new Date(), nextYear.getTime(), Collections.<Date>emptyList()) //
           .withSelectedDate(new Date());
     }
   }
@@ -158,6 +234,111 @@ public class CalendarPickerView extends ListView {
    * @param maxDate Latest selectable date, exclusive.  Must be later than {@code minDate}.
    */
   public FluentInitializer init(Date minDate, Date maxDate, Collection<Date> daysClosedDates, Locale locale) {
+    validateInitArgs(minDate, maxDate, locale);
+    initGeneration++;
+    long start = metricsStart();
+    CalendarModel built = new CalendarModel(minDate, maxDate, daysClosedDates, locale,
+        getContext().getString(R.string.month_name_format),
+        getContext().getString(R.string.day_name_format), selectableFilter);
+    recordSince(CalendarMetrics.Event.MODEL_BUILD, start);
+    install(built);
+    return new FluentInitializer();
+  }
+
+  /**
+   * Both date parameters must be non-null and their {@link Date#getTime()} must not return 0. Time
+   * of day will be ignored.  For instance, if you pass in {@code minDate} as 11/16/2012 5:15pm and
+   * {@code maxDate} as 11/16/2013 4:30am, 11/16/2012 will be the first selectable date and
+   * 11/15/2013 will be the last selectable date ({@code maxDate} is exclusive).
+   * <p>
+   * This will implicitly set the {@link SelectionMode} to {@link SelectionMode#SINGLE}.  If you
+   * want a different selection mode, use {@link FluentInitializer#inMode(SelectionMode)} on the
+   * {@link FluentInitializer} this method returns.
+   * <p>
+   * The calendar will be constructed using the default locale as returned by
+   * {@link java.util.Locale#getDefault()}. If you wish the calendar to be constructed using a
+   * different locale, use init().
+   *
+   * @param minDate Earliest selectable date, inclusive.  Must be earlier than {@code maxDate}.
+   * @param maxDate Latest selectable date, exclusive.  Must be later than {@code minDate}.
+   */
+  public FluentInitializer init(Date minDate, Date maxDate, Collection<Date> daysClosedDates) {
+    return init(minDate, maxDate, daysClosedDates, Locale.getDefault());
+  }
+
+  /**
+   * Same as {@link #init(Date, Date, Collection, Locale)}, except that the calendar model (date
+   * math, month labels, closed days and the cells of the first months shown) is built on
+   * {@code executor} instead of the calling thread.  Until it's ready the picker shows no months,
+   * so its {@link #setEmptyView(View) empty view} works as a placeholder.  {@code listener} is
+   * then called on the main thread with the {@link FluentInitializer} that init() would have
+   * returned.
+   * <p>
+   * The arguments are validated right away.  Any {@link DateSelectableFilter} is consulted on the
+   * executor's thread while the first months are built.  Calling any init method again before the
+   * listener fires cancels the hand-off.
+   */
+  public void initAsync(final Date minDate, final Date maxDate, Collection<Date> daysClosedDates,
+      final Locale locale, Executor executor, final OnInitializedListener listener) {
+    validateInitArgs(minDate, maxDate, locale);
+    final Collection<Date> closedDates = new ArrayList<Date>(daysClosedDates);
+    final String monthNamePattern = getContext().getString(R.string.month_name_format);
+    final String dayNamePattern = getContext().getString(R.string.day_name_format);
+    final Handler mainHandler = new Handler(Looper.getMainLooper());
+    final int generation = ++initGeneration;
+    final CalendarMetrics buildMetrics = metrics;
+    final boolean availabilityRequired = availabilityProvider != null;
+
+    model = null;
+    unbounded = false;
+    initPending = true;
+    validateAndUpdate();
+
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        long start = System.nanoTime();
+        final CalendarModel built = new CalendarModel(minDate, maxDate, closedDates, locale,
+            monthNamePattern, dayNamePattern, selectableFilter);
+        if (availabilityRequired) {
+          built.setAvailabilityRequired(true);
+        }
+        int first = Math.max(built.getScrollTarget(), 0);
+        for (int i = first; i < Math.min(first + ASYNC_PREBUILT_MONTHS, built.getMonthCount());
+            i++) {
+          built.getMonthCells(i);
+        }
+        if (buildMetrics != null) {
+          buildMetrics.record(CalendarMetrics.Event.MODEL_BUILD, System.nanoTime() - start);
+        }
+
+        mainHandler.post(new Runnable() {
+          @Override public void run() {
+            if (generation != initGeneration) {
+              return;
+            }
+            install(built);
+            listener.onInitialized(new FluentInitializer());
+          }
+        });
+      }
+    });
+  }
+
+  /** Swaps in a freshly built model and resets the per-init view state. */
+  private void install(CalendarModel built) {
+    model = built;
+    initPending = false;
+    displayOnly = false;
+    unbounded = false;
+    availabilityGeneration++;
+    availabilityPending.clear();
+    if (availabilityProvider != null && !built.isAvailabilityRequired()) {
+      built.setAvailabilityRequired(true);
+    }
+    validateAndUpdate();
+  }
+
+  private static void validateInitArgs(Date minDate, Date maxDate, Locale locale) {
     if (minDate == null || maxDate == null) {
       throw new IllegalArgumentException(
           "minDate and maxDate must be non-null.  " + dbg(minDate, maxDate));
@@ -173,98 +354,193 @@ public class CalendarPickerView extends ListView {
     if (locale == null) {
       throw new IllegalArgumentException("Locale is null.");
     }
+  }
 
-    // Make sure that all calendar instances use the same locale.
-    this.locale = locale;
-    today = Calendar.getInstance(locale);
-    minCal = Calendar.getInstance(locale);
-    maxCal = Calendar.getInstance(locale);
-    monthCounter = Calendar.getInstance(locale);
-    monthNameFormat =
-        new SimpleDateFormat(getContext().getString(R.string.month_name_format), locale);
-    for (MonthDescriptor month : months) {
-      month.setLabel(monthNameFormat.format(month.getDate()));
-    }
-    weekdayNameFormat =
-        new SimpleDateFormat(getContext().getString(R.string.day_name_format), locale);
-    fullDateFormat = DateFormat.getDateInstance(DateFormat.MEDIUM, locale);
-
-    this.selectionMode = SelectionMode.SINGLE;
-    // Clear out any previously-selected dates/cells.
-    selectedCals.clear();
-    selectedCells.clear();
-    highlightedCals.clear();
-    highlightedCells.clear();
-
-    // Clear Days Closed
-    setDaysClosedDates(daysClosedDates);
-
-    // Clear previous state.
-    cells.clear();
-    months.clear();
-    minCal.setTime(minDate);
-    maxCal.setTime(maxDate);
-    setMidnight(minCal);
-    setMidnight(maxCal);
-    displayOnly = false;
-
-    // maxDate is exclusive: bump back to the previous day so if maxDate is the first of a month,
-    // we don't accidentally include that month in the view.
-    maxCal.add(MINUTE, -1);
+  /**
+   * Initializes a calendar with no fixed first or last month.  Months are served from a window of
+   * {@link #UNBOUNDED_WINDOW_MONTHS} months centered on {@code startDate}'s month, and the window
+   * slides along as the user nears either end of it, so they can scroll years forward or back.
+   * Only {@link CalendarModel#MAX_RESIDENT_MONTHS} months are built at any time however far they
+   * go.
+   * <p>
+   * Every date in the current window is selectable, subject to any {@link DateSelectableFilter}.
+   * Everything else, including the {@link FluentInitializer} options, behaves as it does with
+   * {@link #init(Date, Date, Collection, Locale)}.
+   *
+   * @param startDate Date whose month is shown first.
+   */
+  public FluentInitializer initUnbounded(Date startDate, Collection<Date> daysClosedDates,
+      Locale locale) {
+    if (startDate == null || startDate.getTime() == 0) {
+      throw new IllegalArgumentException("startDate must be non-null and non-zero: " + startDate);
+    }
+    if (locale == null) {
+      throw new IllegalArgumentException("Locale is null.");
+    }
+    Calendar windowStart = Calendar.getInstance(locale);
+    windowStart.setTime(startDate);
+    CalendarModel.setMidnight(windowStart);
+    windowStart.set(DAY_OF_MONTH, 1);
+    windowStart.add(MONTH, -UNBOUNDED_WINDOW_MONTHS / 2);
+    Calendar windowEnd = (Calendar) windowStart.clone();
+    windowEnd.add(MONTH, UNBOUNDED_WINDOW_MONTHS);
+
+    FluentInitializer initializer =
+        init(windowStart.getTime(), windowEnd.getTime(), daysClosedDates, locale);
+    unbounded = true;
+    scrollToSelectedMonth(UNBOUNDED_WINDOW_MONTHS / 2);
+    return initializer;
+  }
 
-    // Now iterate between minCal and maxCal and build up our list of months to show.
-    monthCounter.setTime(minCal.getTime());
-    final int maxMonth = maxCal.get(MONTH);
-    final int maxYear = maxCal.get(YEAR);
-    while ((monthCounter.get(MONTH) <= maxMonth // Up to, including the month.
-        || monthCounter.get(YEAR) < maxYear) // Up to the year.
-        && monthCounter.get(YEAR) < maxYear + 1) { // But not > next yr.
-      Date date = monthCounter.getTime();
+  /** Same as {@link #initUnbounded(Date, Collection, Locale)} with the default locale. */
+  public FluentInitializer initUnbounded(Date startDate, Collection<Date> daysClosedDates) {
+    return initUnbounded(startDate, daysClosedDates, Locale.getDefault());
+  }
 
-      // create new month
-      MonthDescriptor month =
-          new MonthDescriptor(monthCounter.get(MONTH), monthCounter.get(YEAR), date,
-              monthNameFormat.format(date));
+  /**
+   * Moves the unbounded window so that the first visible month is back in its middle, keeping the
+   * list's pixel position.
+   */
+  private void slideWindow() {
+    windowSlidePending = false;
+    recenterWindow(getFirstVisiblePosition());
+  }
 
-      // add days to month
-      cells.add(getMonthCells(month, monthCounter));
-      Logr.d("Adding month %s", month);
-      months.add(month);
-      monthCounter.add(MONTH, 1);
+  /**
+   * Moves the unbounded window so that {@code position} is back in its middle, keeping the list's
+   * pixel position, and returns how many months it moved by.  Does nothing for a bounded calendar.
+   */
+  int recenterWindow(int position) {
+    if (!unbounded || model == null) {
+      return 0;
     }
+    int shift = position - model.getMonthCount() / 2;
+    if (shift == 0) {
+      return 0;
+    }
+    int firstPosition = getFirstVisiblePosition();
+    View firstChild = getChildAt(0);
+    int top = firstChild == null ? 0 : firstChild.getTop();
+    Logr.d("Sliding unbounded window by %d months", shift);
 
-    validateAndUpdate();
-    return new FluentInitializer();
+    model.slideWindow(shift);
+    adapter.notifyDataSetChanged();
+    setSelectionFromTop(firstPosition - shift, top);
+    if (pager != null) {
+      pager.onWindowSlid(shift);
+    }
+    return shift;
   }
 
+  /** Whether {@code position} is close enough to an end of the unbounded window to recenter it. */
+  boolean nearWindowEdge(int position) {
+    return unbounded && (position < UNBOUNDED_EDGE_MONTHS
+        || position >= model.getMonthCount() - UNBOUNDED_EDGE_MONTHS);
+  }
 
+  /**
+   * Saves the date range, selection mode, selected, highlighted and closed days as epoch-day ints,
+   * plus the first visible month.  Filters, listeners and the availability provider aren't saved.
+   */
+  @Override public Parcelable onSaveInstanceState() {
+    Parcelable superState = super.onSaveInstanceState();
+    if (model == null) {
+      return superState;
+    }
+    View firstChild = getChildAt(0);
+    int firstPosition = Math.min(getFirstVisiblePosition(), model.getMonthCount() - 1);
+    return new SavedState(superState, model.saveState(), model.locale, unbounded, displayOnly,
+        model.getYearMonth(firstPosition), firstChild == null ? 0 : firstChild.getTop());
+  }
 
   /**
-   * Both date parameters must be non-null and their {@link Date#getTime()} must not return 0. Time
-   * of day will be ignored.  For instance, if you pass in {@code minDate} as 11/16/2012 5:15pm and
-   * {@code maxDate} as 11/16/2013 4:30am, 11/16/2012 will be the first selectable date and
-   * 11/15/2013 will be the last selectable date ({@code maxDate} is exclusive).
-   * <p>
-   * This will implicitly set the {@link SelectionMode} to {@link SelectionMode#SINGLE}.  If you
-   * want a different selection mode, use {@link FluentInitializer#inMode(SelectionMode)} on the
-   * {@link FluentInitializer} this method returns.
-   * <p>
-   * The calendar will be constructed using the default locale as returned by
-   * {@link java.util.Locale#getDefault()}. If you wish the calendar to be constructed using a
-   * different locale, use init().
-   *
-   * @param minDate Earliest selectable date, inclusive.  Must be earlier than {@code maxDate}.
-   * @param maxDate Latest selectable date, exclusive.  Must be later than {@code minDate}.
+   * Rebuilds the calendar from saved state when no init() has been called since the view was
+   * created, so a screen being recreated can skip init() when it has saved state.  Only the
+   * visible months are built.  Otherwise the calendar set up by init() is kept.  Either way, the
+   * list scrolls back to the month that was first visible, if it's still in range.
    */
-  public FluentInitializer init(Date minDate, Date maxDate, Collection<Date> daysClosedDates) {
-    return init(minDate, maxDate, daysClosedDates, Locale.getDefault());
+  @Override public void onRestoreInstanceState(Parcelable state) {
+    if (!(state instanceof SavedState)) {
+      super.onRestoreInstanceState(state);
+      return;
+    }
+    SavedState saved = (SavedState) state;
+    super.onRestoreInstanceState(saved.getSuperState());
+    if (model == null && !initPending) {
+      initGeneration++;
+      long start = metricsStart();
+      CalendarModel restored = CalendarModel.restoreState(saved.modelState, saved.locale,
+          getContext().getString(R.string.month_name_format),
+          getContext().getString(R.string.day_name_format), selectableFilter);
+      recordSince(CalendarMetrics.Event.MODEL_BUILD, start);
+      install(restored);
+      unbounded = saved.unbounded;
+      displayOnly = saved.displayOnly;
+    }
+    if (model != null) {
+      int position = saved.firstVisibleYearMonth - model.getYearMonth(0);
+      if (position >= 0 && position < model.getMonthCount()) {
+        setSelectionFromTop(position, saved.firstVisibleTop);
+      }
+    }
+  }
+
+  static class SavedState extends BaseSavedState {
+    final int[] modelState;
+    final Locale locale;
+    final boolean unbounded;
+    final boolean displayOnly;
+    /** First visible month as {@code year * 12 + month}, so it survives a different window. */
+    final int firstVisibleYearMonth;
+    final int firstVisibleTop;
+
+    SavedState(Parcelable superState, int[] modelState, Locale locale, boolean unbounded,
+        boolean displayOnly, int firstVisibleYearMonth, int firstVisibleTop) {
+      super(superState);
+      this.modelState = modelState;
+      this.locale = locale;
+      this.unbounded = unbounded;
+      this.displayOnly = displayOnly;
+      this.firstVisibleYearMonth = firstVisibleYearMonth;
+      this.firstVisibleTop = firstVisibleTop;
+    }
+
+    private SavedState(Parcel in) {
+      super(in);
+      modelState = in.createIntArray();
+      locale = (Locale) in.readSerializable();
+      unbounded = in.readInt() != 0;
+      displayOnly = in.readInt() != 0;
+      firstVisibleYearMonth = in.readInt();
+      firstVisibleTop = in.readInt();
+    }
+
+    @Override public void writeToParcel(Parcel out, int flags) {
+      super.writeToParcel(out, flags);
+      out.writeIntArray(modelState);
+      out.writeSerializable(locale);
+      out.writeInt(unbounded ? 1 : 0);
+      out.writeInt(displayOnly ? 1 : 0);
+      out.writeInt(firstVisibleYearMonth);
+      out.writeInt(firstVisibleTop);
+    }
+
+    public static final Parcelable.Creator<SavedState> CREATOR =
+        new Parcelable.Creator<SavedState>() {
+          @Override public SavedState createFromParcel(Parcel in) {
+            return new SavedState(in);
+          }
+
+          @Override public SavedState[] newArray(int size) {
+            return new SavedState[size];
+          }
+        };
   }
 
   public class FluentInitializer {
     /** Override the {@link SelectionMode} from the default ({@link SelectionMode#SINGLE}). */
     public FluentInitializer inMode(SelectionMode mode) {
-      selectionMode = mode;
-      validateAndUpdate();
+      model.selectionMode = CalendarModel.Mode.valueOf(mode.name());
       return this;
     }
 
@@ -281,17 +557,14 @@ public class CalendarPickerView extends ListView {
      * pass in multiple dates and haven't already called {@link #inMode(SelectionMode)}.
      */
     public FluentInitializer withSelectedDates(Collection<Date> selectedDates) {
-      if (selectionMode == SelectionMode.SINGLE && selectedDates.size() > 1) {
+      if (model.selectionMode == CalendarModel.Mode.SINGLE && selectedDates.size() > 1) {
         throw new IllegalArgumentException("SINGLE mode can't be used with multiple selectedDates");
       }
       if (selectedDates != null) {
-        for (Date date : selectedDates) {
-          selectDate(date);
-        }
+        selectDates(selectedDates);
+      } else {
+        scrollToSelectedDates();
       }
-      scrollToSelectedDates();
-
-      validateAndUpdate();
       return this;
     }
 
@@ -315,11 +588,13 @@ public class CalendarPickerView extends ListView {
       return withHighlightedDates(Arrays.asList(date));
     }
 
+    public FluentInitializer withHighlightCategory(Collection<Date> dates, int category) {
+      setHighlightCategory(dates, category);
+      return this;
+    }
+
     public FluentInitializer setShortWeekdays(String[] newShortWeekdays) {
-      DateFormatSymbols symbols = new DateFormatSymbols(locale);
-      symbols.setShortWeekdays(newShortWeekdays);
-      weekdayNameFormat =
-          new SimpleDateFormat(getContext().getString(R.string.day_name_format), symbols);
+      model.setShortWeekdays(newShortWeekdays);
       return this;
     }
 
@@ -334,6 +609,85 @@ public class CalendarPickerView extends ListView {
       setAdapter(adapter);
     }
     adapter.notifyDataSetChanged();
+    if (pager != null) {
+      pager.reset();
+    }
+    if (model != null) {
+      model.dirtyMonths.clear();
+    }
+  }
+
+  /**
+   * Drops the built cells of the month containing {@code date} so they're rebuilt from the current
+   * selection, highlight and closed-day state, and rebinds that month in place if it's on screen.
+   * Other months are left alone.
+   */
+  public void refreshMonth(Date date) {
+    if (model != null && model.invalidateMonth(date)) {
+      rebindDirtyMonths();
+    }
+  }
+
+  /**
+   * Builds the cells of the first month within {@link #PREFETCH_MONTHS} of the visible ones that
+   * isn't built yet, so that scrolling to it only has to bind.  Returns false once there's none.
+   */
+  private boolean prefetchNextMonth() {
+    if (model == null || getChildCount() == 0) {
+      return false;
+    }
+    int first = getFirstVisiblePosition();
+    int last = getLastVisiblePosition();
+    for (int i = 1; i <= PREFETCH_MONTHS; i++) {
+      if (last + i < model.getMonthCount() && !model.isResident(last + i)) {
+        model.getMonthCells(last + i);
+        return true;
+      }
+      if (first - i >= 0 && !model.isResident(first - i)) {
+        model.getMonthCells(first - i);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Re-runs {@link MonthRenderer#init} on the visible months flagged dirty since the last update.
+   * Off-screen months get bound from their cells when they're scrolled to, so they need no work.
+   */
+  private void rebindDirtyMonths() {
+    if (getAdapter() == null) {
+      validateAndUpdate();
+      return;
+    }
+    int firstPosition = getFirstVisiblePosition();
+    for (int i = 0, count = getChildCount(); i < count; i++) {
+      int position = firstPosition + i;
+      if (position < model.getMonthCount() && model.dirtyMonths.get(position)) {
+        bindMonthView((MonthRenderer) getChildAt(i), position);
+      }
+    }
+    if (pager != null) {
+      pager.rebindDirtyPages();
+    }
+    model.dirtyMonths.clear();
+  }
+
+  /** Creates an unbound month view in the configured style. */
+  MonthRenderer createMonthView(ViewGroup parent, LayoutInflater inflater) {
+    if (canvasMonths) {
+      return MonthCanvasView.create(getContext(), model.weekdayNames, listener, dividerColor,
+          cellPalette, displayHeader, headerTextColor);
+    }
+    return MonthView.create(parent, inflater, model.weekdayNames, listener, dividerColor,
+        dayBackgroundResId, dayTextColorResId, displayHeader, headerTextColor);
+  }
+
+  void bindMonthView(MonthRenderer monthView, int position) {
+    long start = metricsStart();
+    monthView.init(model.getMonth(position), model.getMonthCells(position), displayOnly,
+        titleTypeface, dateTypeface);
+    recordSince(CalendarMetrics.Event.MONTH_BIND, start);
   }
 
   private void scrollToSelectedMonth(final int selectedIndex) {
@@ -346,7 +700,12 @@ public class CalendarPickerView extends ListView {
         Logr.d("Scrolling to position %d", selectedIndex);
 
         if (smoothScroll) {
-          smoothScrollToPosition(selectedIndex);
+          int distance = distanceTo(selectedIndex);
+          if (distance != NO_OFFSET) {
+            smoothScrollBy(distance, SMOOTH_SCROLL_MS);
+          } else {
+            smoothScrollToPosition(selectedIndex);
+          }
         } else {
           setSelection(selectedIndex);
         }
@@ -354,28 +713,88 @@ public class CalendarPickerView extends ListView {
     });
   }
 
-  private void scrollToSelectedDates() {
-    Integer selectedIndex = null;
-    Integer todayIndex = null;
-    Calendar today = Calendar.getInstance(locale);
-    for (int c = 0; c < months.size(); c++) {
-      MonthDescriptor month = months.get(c);
-      if (selectedIndex == null) {
-        for (Calendar selectedCal : selectedCals) {
-          if (sameMonth(selectedCal, month)) {
-            selectedIndex = c;
-            break;
-          }
-        }
-        if (selectedIndex == null && todayIndex == null && sameMonth(today, month)) {
-          todayIndex = c;
-        }
-      }
+  /**
+   * Pixels from the current scroll position to the top of the month at {@code index}, or
+   * {@link #NO_OFFSET} if no month has been laid out yet.
+   */
+  private int distanceTo(int index) {
+    int target = monthOffset(index);
+    if (target == NO_OFFSET) {
+      return NO_OFFSET;
+    }
+    int scrolledIntoFirst = getPaddingTop() - getChildAt(0).getTop();
+    int current = monthOffset(getFirstVisiblePosition()) + scrolledIntoFirst;
+    return target - current;
+  }
+
+  /**
+   * Pixels from the top of the first month to the top of the month at {@code index}, or
+   * {@link #NO_OFFSET} if no month has been laid out yet.  Every month is the same title, header
+   * and margins plus its week rows, so the geometry of any laid out month gives all of them.
+   */
+  private int monthOffset(int index) {
+    View child = getChildAt(0);
+    if (model == null || child == null || child.getHeight() == 0) {
+      return NO_OFFSET;
     }
-    if (selectedIndex != null) {
-      scrollToSelectedMonth(selectedIndex);
-    } else if (todayIndex != null) {
-      scrollToSelectedMonth(todayIndex);
+    int rowHeight = ((MonthRenderer) child).getWeekRowHeight();
+    if (rowHeight == 0) {
+      return NO_OFFSET;
+    }
+    int rows = fixedMonthHeight ? MAX_WEEKS : model.getWeekCount(getFirstVisiblePosition());
+    int monthChrome = child.getHeight() - rows * rowHeight;
+    int rowsBefore = fixedMonthHeight ? index * MAX_WEEKS : model.getWeekRowsBefore(index);
+    return index * monthChrome + rowsBefore * rowHeight;
+  }
+
+  /**
+   * Returns how far, in pixels, the week row of {@code date} is from the top of the first month,
+   * or {@link #NO_OFFSET} if no month has been laid out yet.  Worked out without building or
+   * measuring the months in between, so it's cheap for any date in range.
+   */
+  public int getDateOffset(Date date) {
+    if (model == null) {
+      return NO_OFFSET;
+    }
+    model.validateDate(date);
+    int index = model.getMonthIndex(date);
+    int monthOffset = monthOffset(index);
+    if (monthOffset == NO_OFFSET) {
+      return NO_OFFSET;
+    }
+    MonthRenderer month = (MonthRenderer) getChildAt(0);
+    return monthOffset + month.getWeeksTop()
+        + model.getWeekOfMonth(date) * month.getWeekRowHeight();
+  }
+
+  /**
+   * Pads every month to six week rows so they're all the same height, which keeps the list from
+   * jumping as months of different lengths scroll by.  Off by default; also set by the
+   * {@code fixedMonthHeight} attribute.
+   */
+  public void setFixedMonthHeight(boolean fixedMonthHeight) {
+    this.fixedMonthHeight = fixedMonthHeight;
+    if (model != null) {
+      validateAndUpdate();
+    }
+  }
+
+  /**
+   * Selection and highlights are kept in the model, so changing them before init() has built one,
+   * or while an {@link #initAsync} is still building it, would silently lose them.
+   */
+  private void checkInitialized() {
+    if (model == null) {
+      throw new IllegalStateException(initPending
+          ? "initAsync() hasn't finished.  Wait for its OnInitializedListener."
+          : "Did you forget to call init()?");
+    }
+  }
+
+  private void scrollToSelectedDates() {
+    int index = model.getScrollTarget();
+    if (index >= 0) {
+      scrollToSelectedMonth(index);
     }
   }
 
@@ -394,7 +813,9 @@ public class CalendarPickerView extends ListView {
     post(new Runnable() {
       @Override public void run() {
         Logr.d("Dimens are fixed: now scroll to the selected date");
-        scrollToSelectedDates();
+        if (model != null) {
+          scrollToSelectedDates();
+        }
       }
     });
   }
@@ -435,25 +856,193 @@ public class CalendarPickerView extends ListView {
     requestLayout();
   }
 
+  /** Drops the pending idle prefetch and window slide; binding a month schedules them again. */
+  @Override protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    if (prefetchScheduled) {
+      prefetchScheduled = false;
+      Looper.myQueue().removeIdleHandler(prefetch);
+    }
+    windowSlidePending = false;
+    removeCallbacks(slideWindow);
+  }
+
   @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-    if (months.isEmpty()) {
+    if (!initPending && (model == null || model.getMonthCount() == 0)) {
       throw new IllegalStateException(
           "Must have at least one month to display.  Did you forget to call init()?");
     }
+    long start = metricsStart();
     super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    recordSince(CalendarMetrics.Event.MEASURE, start);
+  }
+
+  @Override protected void onLayout(boolean changed, int l, int t, int r, int b) {
+    long start = metricsStart();
+    super.onLayout(changed, l, t, r, b);
+    recordSince(CalendarMetrics.Event.LAYOUT, start);
+  }
+
+  /**
+   * Watches for a drag that starts on the first or last day of the selected range.  Once the
+   * finger moves past the touch slop, the gesture is taken from the cells and the list and the
+   * endpoint follows the finger across weeks and months.
+   */
+  @Override public boolean onInterceptTouchEvent(MotionEvent ev) {
+    switch (ev.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        dragEndpoint = null;
+        dragging = false;
+        if (model != null && !displayOnly && model.selectionMode == CalendarModel.Mode.RANGE
+            && model.selectedCells.size() > 1) {
+          MonthCellDescriptor cell = cellAt(ev.getX(), ev.getY());
+          if (cell != null && (cell.getRangeState() == RangeState.FIRST
+              || cell.getRangeState() == RangeState.LAST)) {
+            dragEndpoint = cell.getRangeState();
+            dragDate = cell.getDate();
+            dragStartX = ev.getX();
+            dragStartY = ev.getY();
+          }
+        }
+        break;
+      case MotionEvent.ACTION_MOVE:
+        if (dragEndpoint != null && (Math.abs(ev.getX() - dragStartX) > touchSlop
+            || Math.abs(ev.getY() - dragStartY) > touchSlop)) {
+          startDrag(ev);
+          return true;
+        }
+        break;
+      case MotionEvent.ACTION_UP:
+      case MotionEvent.ACTION_CANCEL:
+        dragEndpoint = null;
+        break;
+      default:
+        break;
+    }
+    return super.onInterceptTouchEvent(ev);
+  }
+
+  @Override public boolean onTouchEvent(MotionEvent ev) {
+    if (!dragging) {
+      return super.onTouchEvent(ev);
+    }
+    switch (ev.getActionMasked()) {
+      case MotionEvent.ACTION_MOVE:
+        dragX = ev.getX();
+        dragY = ev.getY();
+        dragTo(dragX, dragY);
+        updateAutoScroll();
+        break;
+      case MotionEvent.ACTION_UP:
+        finishDrag(true);
+        break;
+      case MotionEvent.ACTION_CANCEL:
+        finishDrag(false);
+        break;
+      default:
+        break;
+    }
+    return true;
+  }
+
+  private void startDrag(MotionEvent ev) {
+    dragging = true;
+    dragMoved = false;
+    dragX = ev.getX();
+    dragY = ev.getY();
+    getParent().requestDisallowInterceptTouchEvent(true);
+    // Reset the list's own tracking of this gesture, which it started on the down.
+    MotionEvent cancel = MotionEvent.obtain(ev);
+    cancel.setAction(MotionEvent.ACTION_CANCEL);
+    super.onTouchEvent(cancel);
+    cancel.recycle();
+  }
+
+  /**
+   * Moves the dragged endpoint to the day under ({@code x}, {@code y}) if it can go there.  Only
+   * the days between the old and new endpoint change state, and only the months holding them are
+   * rebound.
+   */
+  private void dragTo(float x, float y) {
+    MonthCellDescriptor cell = cellAt(x, y);
+    if (cell == null || cell.getDate().equals(dragDate) || !cell.isSelectable()
+        || !model.isSelectable(cell.getDate())) {
+      return;
+    }
+    CalendarModel.MonthCellWithMonthIndex target =
+        model.getMonthCellWithIndexByDate(cell.getDate());
+    if (target == null) {
+      return;
+    }
+    long start = metricsStart();
+    if (model.moveRangeEndpoint(dragEndpoint, target.cell)) {
+      dragDate = target.cell.getDate();
+      dragMoved = true;
+      rebindDirtyMonths();
+      recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
+    }
+  }
+
+  /** Scrolls while the finger is near the top or bottom edge, faster the closer it is. */
+  private void updateAutoScroll() {
+    if (dragY < autoScrollEdge) {
+      autoScrollStep = -autoScrollMaxStep * (autoScrollEdge - (int) dragY) / autoScrollEdge;
+    } else if (dragY > getHeight() - autoScrollEdge) {
+      autoScrollStep =
+          autoScrollMaxStep * ((int) dragY - getHeight() + autoScrollEdge) / autoScrollEdge;
+    } else {
+      autoScrollStep = 0;
+    }
+    if (autoScrollStep != 0 && !autoScrollPosted) {
+      autoScrollPosted = true;
+      postDelayed(autoScroll, AUTO_SCROLL_INTERVAL_MS);
+    }
+  }
+
+  private void finishDrag(boolean notify) {
+    RangeState endpoint = dragEndpoint;
+    dragging = false;
+    dragEndpoint = null;
+    autoScrollStep = 0;
+    autoScrollPosted = false;
+    removeCallbacks(autoScroll);
+    if (notify && dragMoved && dateListener != null) {
+      dateListener.onRangeModified(dragDate, endpoint);
+    }
+  }
+
+  /** Returns the day of the month under ({@code x}, {@code y}) in this view, or null. */
+  private MonthCellDescriptor cellAt(float x, float y) {
+    for (int i = 0, count = getChildCount(); i < count; i++) {
+      View child = getChildAt(i);
+      if (y >= child.getTop() && y < child.getBottom()) {
+        return ((MonthRenderer) child).getCellAt(x - child.getLeft(), y - child.getTop());
+      }
+    }
+    return null;
+  }
+
+  @Override public boolean dispatchTouchEvent(MotionEvent ev) {
+    long start = metricsStart();
+    boolean handled = super.dispatchTouchEvent(ev);
+    recordSince(CalendarMetrics.Event.TOUCH, start);
+    return handled;
   }
 
   public Date getSelectedDate() {
-    return (selectedCals.size() > 0 ? selectedCals.get(0).getTime() : null);
+    return model == null ? null : model.getSelectedDate();
   }
 
   public List<Date> getSelectedDates() {
-    List<Date> selectedDates = new ArrayList<Date>();
-    for (MonthCellDescriptor cal : selectedCells) {
-      selectedDates.add(cal.getDate());
-    }
-    Collections.sort(selectedDates);
-    return selectedDates;
+    return model == null ? new ArrayList<Date>() : model.getSelectedDates();
+  }
+
+  /**
+   * Returns the selected dates as midnight timestamps in ascending order.  Cheaper than
+   * {@link #getSelectedDates()} when many dates are selected, since no {@link Date} is created.
+   */
+  public long[] getSelectedDateMillis() {
+    return model == null ? new long[0] : model.getSelectedDateMillis();
   }
 
   /** Returns a string summarizing what the client sent us for init() params. */
@@ -461,20 +1050,12 @@ public class CalendarPickerView extends ListView {
     return "minDate: " + minDate + "\nmaxDate: " + maxDate;
   }
 
-  /** Clears out the hours/minutes/seconds/millis of a Calendar. */
-  static void setMidnight(Calendar cal) {
-    cal.set(HOUR_OF_DAY, 0);
-    cal.set(MINUTE, 0);
-    cal.set(SECOND, 0);
-    cal.set(MILLISECOND, 0);
-  }
-
   private class CellClickedListener implements MonthView.Listener {
 
     /*
      * case for single date click
      */
-    @Override public void handleClick(MonthCellDescriptor cell, boolean isRange, RangeState rangeState) {
+    @Override public void handleClick(MonthCellDescriptor cell) {
       Date clickedDate = cell.getDate();
 
       if (cellClickInterceptor != null && cellClickInterceptor.onCellClicked(clickedDate)) {
@@ -482,79 +1063,26 @@ public class CalendarPickerView extends ListView {
       }
 
       // logic to determine if are between
-      if (!betweenDates(clickedDate, minCal, maxCal) || !isDateSelectable(clickedDate)) {
+      if (!model.isSelectable(clickedDate)) {
         if (invalidDateListener != null) {
           invalidDateListener.onInvalidDateSelected(clickedDate);
         }
       } else {
-        boolean wasSelected = doSelectDate(clickedDate, cell);
+        long start = metricsStart();
+        boolean wasSelected = model.doSelectDate(clickedDate, cell);
+        rebindDirtyMonths();
+        recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
 
         if (dateListener != null) {
           if (wasSelected) {
-            // TODO: Create listeners to provide feedback to app
-            if (isRange) {
-                // range is being modified
-                // exclude case where changing FIRST and need to resubmit LAST to retain range
-                if (((MonthCellDescriptor)selectedCells.get(1)).getDate().equals(cell.getDate()))
-                    dateListener.onRangeModified(cell.getDate(), rangeState);
-            } else {
-                // single date was selected
-                dateListener.onDateSelected(clickedDate, selectedCells.size() == 1 ? RangeState.FIRST : RangeState.LAST);
-            }
+            dateListener.onDateSelected(clickedDate,
+                model.getSelectionCount() == 1 ? RangeState.FIRST : RangeState.LAST);
           } else {
             dateListener.onDateUnselected(clickedDate);
           }
         }
       }
     }
-
-
-    /*
-     * case for week slider for FIRST or LAST day moved
-    */
-    @Override
-    public void handleSlideUpdate(RangeState cellState, MonthCellDescriptor cell) {
-
-      if (cellState == RangeState.LAST) {
-
-          // eliminate 2nd calendar which is LAST's
-          selectedCals.remove(1);
-
-          // eliminate all middle cells and LAST's
-          ListIterator<MonthCellDescriptor> iterator = selectedCells.listIterator();
-          while (iterator.hasNext()){
-              MonthCellDescriptor monthCellDescriptor = iterator.next();
-              if (monthCellDescriptor.getRangeState() == RangeState.LAST || monthCellDescriptor.getRangeState() == RangeState.MIDDLE)
-                  iterator.remove();
-          }
-
-          // insert new 2nd entry
-          handleClick(cell, true, RangeState.LAST);
-
-
-      } else if (cellState == RangeState.FIRST) {
-
-          // save 2nd entry
-          MonthCellDescriptor lastCellDescriptor = selectedCells.get(1);
-
-          // insert new entry
-          handleClick(cell, false, null);
-
-          // insert prior old entry
-          handleClick(lastCellDescriptor, true, RangeState.FIRST);
-
-      } else {
-          throw new RuntimeException("State is neither First nor Last for slideUpdate");
-      }
-    }
-
-    @Override
-    public void updateCellData(int month, int week, int day) {
-
-        MonthCellDescriptor monthCellDescriptor = (MonthCellDescriptor)((List<MonthCellDescriptor>)((List<List<MonthCellDescriptor>>)(cells.get(month))).get(week)).get(day);
-        monthCellDescriptor.setRangeState(RangeState.FIRST);
-        validateAndUpdate();
-    }
   }
 
   /**
@@ -584,200 +1112,137 @@ public class CalendarPickerView extends ListView {
    * @return - whether we were able to set the date
    */
   public boolean selectDate(Date date, boolean smoothScroll) {
-    validateDate(date);
+    checkInitialized();
+    model.validateDate(date);
 
-    MonthCellWithMonthIndex monthCellWithMonthIndex = getMonthCellWithIndexByDate(date);
-    if (monthCellWithMonthIndex == null || !isDateSelectable(date)) {
+    CalendarModel.MonthCellWithMonthIndex monthCellWithMonthIndex =
+        model.getMonthCellWithIndexByDate(date);
+    if (monthCellWithMonthIndex == null || !model.isSelectable(date)) {
       return false;
     }
-    boolean wasSelected = doSelectDate(date, monthCellWithMonthIndex.cell);
+    long start = metricsStart();
+    boolean wasSelected = model.doSelectDate(date, monthCellWithMonthIndex.cell);
+    rebindDirtyMonths();
+    recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
     if (wasSelected) {
       scrollToSelectedMonth(monthCellWithMonthIndex.monthIndex, smoothScroll);
     }
     return wasSelected;
   }
 
-  private void validateDate(Date date) {
-    if (date == null) {
-      throw new IllegalArgumentException("Selected date must be non-null.");
-    }
-    if (date.getTime() == 0) {
-      throw new IllegalArgumentException("Selected date must be non-zero.  " + date);
-    }
-    if (date.before(minCal.getTime()) || date.after(maxCal.getTime())) {
-      throw new IllegalArgumentException(String.format(
-          "SelectedDate must be between minDate and maxDate."
-              + "%nminDate: %s%nmaxDate: %s%nselectedDate: %s", minCal.getTime(), maxCal.getTime(),
-          date));
-    }
+  /**
+   * Select several dates at once, validating all of them before any is applied and refreshing the
+   * visible months once at the end.  In {@link SelectionMode#MULTIPLE} the dates are added to the
+   * selection; {@link #selectDate(Date)} toggles instead.  The view scrolls to the earliest
+   * selected date if it's not already visible.
+   *
+   * @return - how many of the dates were selectable and got selected
+   */
+  public int selectDates(Collection<Date> dates) {
+    return selectDates(toMillis(dates));
   }
 
-  private boolean doSelectDate(Date date, MonthCellDescriptor cell) {
-    Calendar newlySelectedCal = Calendar.getInstance(locale);
-    newlySelectedCal.setTime(date);
-    // Sanitize input: clear out the hours/minutes/seconds/millis.
-    setMidnight(newlySelectedCal);
-
-    // Clear any remaining range state.
-    for (MonthCellDescriptor selectedCell : selectedCells) {
-      selectedCell.setRangeState(RangeState.NONE);
+  /** Same as {@link #selectDates(Collection)}, taking each date as epoch millis. */
+  public int selectDates(long[] millis) {
+    checkInitialized();
+    if (model.selectionMode == CalendarModel.Mode.SINGLE && millis.length > 1) {
+      throw new IllegalArgumentException("SINGLE mode can't be used with multiple selectedDates");
     }
+    long start = metricsStart();
+    int selected = model.selectDates(millis, millis.length);
+    rebindDirtyMonths();
+    recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
+    scrollToSelectedDates();
+    return selected;
+  }
 
-    switch (selectionMode) {
-      case RANGE:
+  /**
+   * Highlight several dates at once, validating all of them before any is applied and refreshing
+   * the visible months once at the end.
+   */
+  public void highlightDates(Collection<Date> dates) {
+    highlightDates(toMillis(dates));
+  }
 
-        if (selectedCals.size() > 1) {
-          // We've already got a range selected: clear the old one.
-          clearOldSelections();
-        } else if (selectedCals.size() == 1 && newlySelectedCal.before(selectedCals.get(0))) {
-          // We're moving the start of the range back in time: clear the old start date.
-          clearOldSelections();
-        }
-        break;
+  /** Same as {@link #highlightDates(Collection)}, taking each date as epoch millis. */
+  public void highlightDates(long[] millis) {
+    checkInitialized();
+    long start = metricsStart();
+    model.highlightDates(millis, millis.length);
+    rebindDirtyMonths();
+    recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
+  }
 
-      case MULTIPLE:
-        date = applyMultiSelect(date, newlySelectedCal);
-        break;
+  /** Highlight every date from {@code from} to {@code to}, both inclusive. */
+  public void highlightDateRange(Date from, Date to) {
+    checkInitialized();
+    long start = metricsStart();
+    model.highlightDateRange(from, to);
+    rebindDirtyMonths();
+    recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
+  }
 
-      case SINGLE:
-        clearOldSelections();
-        break;
-      default:
-        throw new IllegalStateException("Unknown selectionMode " + selectionMode);
-    }
+  /**
+   * Put each of {@code dates} in a highlight category, replacing any category it had.  Cells in
+   * category {@code n} get the {@code state_highlight_category_n} drawable state, so the day
+   * background and text color selectors can style up to {@link #MAX_HIGHLIGHT_CATEGORY} kinds of
+   * day at once.  Category 0 removes the highlight.  Unselectable dates keep their category but
+   * aren't shown with it.
+   */
+  public void setHighlightCategory(Collection<Date> dates, int category) {
+    setHighlightCategory(toMillis(dates), category);
+  }
 
-    if (date != null) {
-      // Select a new cell.
-      if (selectedCells.size() == 0 || !selectedCells.get(0).equals(cell)) {
-        selectedCells.add(cell);
-        cell.setSelected(true);
-      }
-      selectedCals.add(newlySelectedCal);
-
-      if (selectionMode == SelectionMode.RANGE && selectedCells.size() > 1) {
-        // Select all days in between start and end.
-        Date start = selectedCells.get(0).getDate();
-        Date end = selectedCells.get(1).getDate();
-        selectedCells.get(0).setRangeState(RangeState.FIRST);
-        selectedCells.get(1).setRangeState(RangeState.LAST);
-
-        // fill in the Middle days && remove prior date selections
-        for (List<List<MonthCellDescriptor>> month : cells) {
-          for (List<MonthCellDescriptor> week : month) {
-            for (MonthCellDescriptor singleCell : week) {
-
-                // reset all date Ranges and Selected
-                if (!(singleCell.getDate().equals(start) || singleCell.getDate().equals(end))) {
-                    singleCell.setSelected(false);
-                    singleCell.setRangeState(RangeState.NONE);
-                }
-
-
-              // insert Middle days
-              if (singleCell.getDate().after(start)
-                  && singleCell.getDate().before(end)
-                  && singleCell.isSelectable()) {
-                singleCell.setSelected(true);
-
-                singleCell.setRangeState(RangeState.MIDDLE);
-                selectedCells.add(singleCell);
-              }
-            }
-          }
-        }
-      }
-    }
+  /** Same as {@link #setHighlightCategory(Collection, int)}, taking each date as epoch millis. */
+  public void setHighlightCategory(long[] millis, int category) {
+    checkInitialized();
+    long start = metricsStart();
+    model.setHighlightCategory(millis, millis.length, category);
+    rebindDirtyMonths();
+    recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
+  }
 
-    // Update the adapter.
-    validateAndUpdate();
-    return date != null;
+  /** Put every date from {@code from} to {@code to}, both inclusive, in a highlight category. */
+  public void setHighlightCategory(Date from, Date to, int category) {
+    checkInitialized();
+    long start = metricsStart();
+    model.setHighlightCategory(from, to, category);
+    rebindDirtyMonths();
+    recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
   }
 
-  private void clearOldSelections() {
-    for (MonthCellDescriptor selectedCell : selectedCells) {
-      // De-select the currently-selected cell.
-      selectedCell.setSelected(false);
-    }
-    selectedCells.clear();
-    selectedCals.clear();
+  /** Returns the highlight category of {@code date}, or 0 if it has none. */
+  public int getHighlightCategory(Date date) {
+    return model == null ? 0 : model.getHighlightCategory(date);
   }
 
-  private Date applyMultiSelect(Date date, Calendar selectedCal) {
-    for (MonthCellDescriptor selectedCell : selectedCells) {
-      if (selectedCell.getDate().equals(date)) {
-        // De-select the currently-selected cell.
-        selectedCell.setSelected(false);
-        selectedCells.remove(selectedCell);
-        date = null;
-        break;
-      }
-    }
-    for (Calendar cal : selectedCals) {
-      if (sameDate(cal, selectedCal)) {
-        selectedCals.remove(cal);
-        break;
-      }
+  public void clearHighlightCategories() {
+    if (model != null) {
+      model.clearHighlightCategories();
+      rebindDirtyMonths();
     }
-    return date;
   }
 
-  public void highlightDates(Collection<Date> dates) {
+  private static long[] toMillis(Collection<Date> dates) {
+    long[] millis = new long[dates.size()];
+    int i = 0;
     for (Date date : dates) {
-      validateDate(date);
-
-      MonthCellWithMonthIndex monthCellWithMonthIndex = getMonthCellWithIndexByDate(date);
-      if (monthCellWithMonthIndex != null) {
-        Calendar newlyHighlightedCal = Calendar.getInstance();
-        newlyHighlightedCal.setTime(date);
-        MonthCellDescriptor cell = monthCellWithMonthIndex.cell;
-
-        highlightedCells.add(cell);
-        highlightedCals.add(newlyHighlightedCal);
-        cell.setHighlighted(true);
+      if (date == null) {
+        throw new IllegalArgumentException("Selected date must be non-null.");
       }
+      millis[i++] = date.getTime();
     }
-
-    adapter.notifyDataSetChanged();
-    setAdapter(adapter);
+    return millis;
   }
 
+  /** Replaces the closed days, refreshing the months on screen. */
   public void setDaysClosedDates(Collection<Date> daysClosedDates) {
-      this.daysClosedDates.clear();
-      this.daysClosedDates.addAll(daysClosedDates);
-  }
-
-  /** Hold a cell with a month-index. */
-  private static class MonthCellWithMonthIndex {
-    public MonthCellDescriptor cell;
-    public int monthIndex;
-
-    public MonthCellWithMonthIndex(MonthCellDescriptor cell, int monthIndex) {
-      this.cell = cell;
-      this.monthIndex = monthIndex;
+    if (model != null) {
+      model.setDaysClosedDates(daysClosedDates);
+      rebindDirtyMonths();
     }
   }
 
-  /** Return cell and month-index (for scrolling) for a given Date. */
-  private MonthCellWithMonthIndex getMonthCellWithIndexByDate(Date date) {
-    int index = 0;
-    Calendar searchCal = Calendar.getInstance(locale);
-    searchCal.setTime(date);
-    Calendar actCal = Calendar.getInstance(locale);
-
-    for (List<List<MonthCellDescriptor>> monthCells : cells) {
-      for (List<MonthCellDescriptor> weekCells : monthCells) {
-        for (MonthCellDescriptor actCell : weekCells) {
-          actCal.setTime(actCell.getDate());
-          if (sameDate(actCal, searchCal) && actCell.isSelectable()) {
-            return new MonthCellWithMonthIndex(actCell, index);
-          }
-        }
-      }
-      index++;
-    }
-    return null;
-  }
-
   private class MonthAdapter extends BaseAdapter {
     private final LayoutInflater inflater;
 
@@ -791,177 +1256,245 @@ public class CalendarPickerView extends ListView {
     }
 
     @Override public int getCount() {
-      return months.size();
+      return model == null ? 0 : model.getMonthCount();
     }
 
     @Override public Object getItem(int position) {
-      return months.get(position);
+      return model.getMonth(position);
     }
 
+    /** Months keep their id when the unbounded window slides. */
     @Override public long getItemId(int position) {
-      return position;
+      return model.getYearMonth(position);
+    }
+
+    @Override public boolean hasStableIds() {
+      return true;
+    }
+
+    /**
+     * Months are recycled only into months with as many weeks, so a recycled month never has to
+     * re-measure its grid for a different row count.
+     */
+    @Override public int getViewTypeCount() {
+      return MAX_WEEKS - MIN_WEEKS + 1;
+    }
+
+    @Override public int getItemViewType(int position) {
+      if (fixedMonthHeight) {
+        return 0;
+      }
+      return model.getWeekCount(position) - MIN_WEEKS;
     }
 
     @Override public View getView(int position, View convertView, ViewGroup parent) {
-      MonthView monthView = (MonthView) convertView;
+      MonthRenderer monthView = (MonthRenderer) convertView;
       if (monthView == null) {
-        monthView =
-            MonthView.create(parent, inflater, weekdayNameFormat, listener, today, dividerColor,
-                dayBackgroundResId, dayTextColorResId, displayHeader,
-                headerTextColor);
+        monthView = createMonthView(parent, inflater);
       }
-      monthView.init(months.get(position), cells.get(position), displayOnly, titleTypeface,
-          dateTypeface);
-      return monthView;
-    }
-  }
-
-  List<List<MonthCellDescriptor>> getMonthCells(MonthDescriptor month, Calendar startCal) {
-    Calendar cal = Calendar.getInstance(locale);
-    cal.setTime(startCal.getTime());
-    List<List<MonthCellDescriptor>> cells = new ArrayList<List<MonthCellDescriptor>>();
-    cal.set(DAY_OF_MONTH, 1);
-
-
-    // set starting day in month
-    // TODO: provide abililty to alter starting day of week
-    int firstDayOfWeek = cal.get(DAY_OF_WEEK);
-    int offset = cal.getFirstDayOfWeek() - firstDayOfWeek;
-    if (offset > 0) {
-      offset -= 7;
-    }
-    cal.add(Calendar.DATE, offset);
-
-    Calendar minSelectedCal = minDate(selectedCals);
-    Calendar maxSelectedCal = maxDate(selectedCals);
-
-    while ((cal.get(MONTH) < month.getMonth() + 1 || cal.get(YEAR) < month.getYear()) //
-        && cal.get(YEAR) <= month.getYear()) {
-      Logr.d("Building week row starting at %s", cal.getTime());
-      List<MonthCellDescriptor> weekCells = new ArrayList<MonthCellDescriptor>();
-      cells.add(weekCells);
-      for (int c = 0; c < 7; c++) {
-        Date date = cal.getTime();
-        boolean isCurrentMonth = cal.get(MONTH) == month.getMonth();
-        boolean isSelected = isCurrentMonth && containsDate(selectedCals, cal);
-        boolean isSelectable =
-            isCurrentMonth && betweenDates(cal, minCal, maxCal) && isDateSelectable(date);
-        boolean isToday = sameDate(cal, today);
-        boolean isClosed = compareDates(cal, daysClosedDates);
-
-        boolean isHighlighted = containsDate(highlightedCals, cal);
-        int value = cal.get(DAY_OF_MONTH);
-
-        RangeState rangeState = RangeState.NONE;
-        if (selectedCals.size() > 1) {
-          if (sameDate(minSelectedCal, cal)) {
-            rangeState = RangeState.FIRST;
-          } else if (sameDate(maxDate(selectedCals), cal)) {
-            rangeState = RangeState.LAST;
-          } else if (betweenDates(cal, minSelectedCal, maxSelectedCal)) {
-            rangeState = RangeState.MIDDLE;
-          }
-        }
-
-        weekCells.add(
-            new MonthCellDescriptor(date, isCurrentMonth, isSelectable, isSelected, isToday,
-                isClosed, isHighlighted, value, rangeState));
-        cal.add(DATE, 1);
+      monthView.setFixedHeight(fixedMonthHeight);
+      bindMonthView(monthView, position);
+      requestAvailability(position);
+      if (!prefetchScheduled) {
+        prefetchScheduled = true;
+        Looper.myQueue().addIdleHandler(prefetch);
+      }
+      if (!windowSlidePending && nearWindowEdge(position)) {
+        windowSlidePending = true;
+        post(slideWindow);
       }
+      return (View) monthView;
     }
-    return cells;
   }
 
-  private static boolean containsDate(List<Calendar> selectedCals, Calendar cal) {
-    for (Calendar selectedCal : selectedCals) {
-      if (sameDate(cal, selectedCal)) {
-        return true;
-      }
-    }
-    return false;
+  public void setOnDateSelectedListener(OnDateSelectedListener listener) {
+    dateListener = listener;
   }
 
-  private static Calendar minDate(List<Calendar> selectedCals) {
-    if (selectedCals == null || selectedCals.size() == 0) {
-      return null;
-    }
-    Collections.sort(selectedCals);
-    return selectedCals.get(0);
+  /**
+   * Set a listener to react to user selection of a disabled date.
+   *
+   * @param listener the listener to set, or null for no reaction
+   */
+  public void setOnInvalidDateSelectedListener(OnInvalidDateSelectedListener listener) {
+    invalidDateListener = listener;
   }
 
-  private static Calendar maxDate(List<Calendar> selectedCals) {
-    if (selectedCals == null || selectedCals.size() == 0) {
-      return null;
+  /**
+   * Set a listener used to discriminate between selectable and unselectable dates. Set this to
+   * disable arbitrary dates as they are rendered.
+   * <p>
+   * The filter is asked about each day once and its answer is remembered.  If its answers change,
+   * call {@link #invalidateSelectability(Date)} or one of its overloads.  Setting a filter after
+   * init() forgets every remembered answer.
+   */
+  public void setDateSelectableFilter(DateSelectableFilter listener) {
+    dateConfiguredListener = listener;
+    if (model != null) {
+      invalidateSelectability();
     }
-    Collections.sort(selectedCals);
-    return selectedCals.get(selectedCals.size() - 1);
   }
 
-  private static boolean sameDate(Calendar cal, Calendar selectedDate) {
-    return cal.get(MONTH) == selectedDate.get(MONTH)
-        && cal.get(YEAR) == selectedDate.get(YEAR)
-        && cal.get(DAY_OF_MONTH) == selectedDate.get(DAY_OF_MONTH);
+  /**
+   * Ask the {@link DateSelectableFilter} about {@code date} again, and redraw it if it's shown.
+   */
+  public void invalidateSelectability(Date date) {
+    invalidateSelectability(date, date);
   }
 
-  private static boolean compareDates(Calendar cal, Collection<Date> daysClosedDates) {
-      Calendar comparisonCal = Calendar.getInstance();
-      for (Date date : daysClosedDates) {
-          comparisonCal.setTime(date);
-
-          if (sameDate(cal, comparisonCal))
-              return true;
-      }
-
-      return false;
+  /**
+   * Ask the filter again about every date from {@code from} to {@code to}, both inclusive.  Dates
+   * outside the calendar are ignored.
+   */
+  public void invalidateSelectability(Date from, Date to) {
+    if (model == null) {
+      return;
+    }
+    long start = metricsStart();
+    model.invalidateSelectability(from, to);
+    rebindDirtyMonths();
+    recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
   }
 
-  private static boolean betweenDates(Calendar cal, Calendar minCal, Calendar maxCal) {
-    final Date date = cal.getTime();
-    return betweenDates(date, minCal, maxCal);
+  /** Ask the filter again about every date. */
+  public void invalidateSelectability() {
+    if (model == null) {
+      return;
+    }
+    long start = metricsStart();
+    model.invalidateSelectability();
+    rebindDirtyMonths();
+    recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
   }
 
-  static boolean betweenDates(Date date, Calendar minCal, Calendar maxCal) {
-    final Date min = minCal.getTime();
-    return (date.equals(min) || date.after(min)) // >= minCal
-        && date.before(maxCal.getTime()); // && < maxCal
+  /**
+   * Load which days can be selected from {@code provider}, on {@code executor}, instead of
+   * deciding it up front.  Availability is asked for a few months at a time as they come close
+   * to being shown, and each month is redrawn once its answer arrives; until then its days can't
+   * be selected.  The most recently used months' answers are kept, the rest asked for again when
+   * needed.  Can be called before or after init(); pass null to stop using a provider.  Days must
+   * also pass any {@link DateSelectableFilter} to be selectable.
+   */
+  public void setAvailabilityProvider(AvailabilityProvider provider, Executor executor) {
+    if (provider != null && executor == null) {
+      throw new IllegalArgumentException("executor must be non-null.");
+    }
+    availabilityProvider = provider;
+    availabilityExecutor = executor;
+    availabilityGeneration++;
+    availabilityPending.clear();
+    if (model == null) {
+      return;
+    }
+    model.setAvailabilityRequired(provider != null);
+    rebindDirtyMonths();
+    if (provider != null && getAdapter() != null) {
+      for (int i = 0, count = getChildCount(); i < count; i++) {
+        requestAvailability(getFirstVisiblePosition() + i);
+      }
+    }
   }
 
-  private static boolean sameMonth(Calendar cal, MonthDescriptor month) {
-    return (cal.get(MONTH) == month.getMonth() && cal.get(YEAR) == month.getYear());
+  /**
+   * Forget the loaded availability of every month, e.g. after the store behind the
+   * {@link AvailabilityProvider} changed, and ask for it again as months are shown.
+   */
+  public void reloadAvailability() {
+    setAvailabilityProvider(availabilityProvider, availabilityExecutor);
   }
 
-  private boolean isDateSelectable(Date date) {
+  /**
+   * Asks for the availability of the months around {@code position} that don't have it yet, one
+   * batch per run of consecutive months.
+   */
+  void requestAvailability(int position) {
+    if (availabilityProvider == null) {
+      return;
+    }
+    int last = Math.min(position + AVAILABILITY_PREFETCH_MONTHS, model.getMonthCount() - 1);
+    int runStart = -1;
+    for (int i = Math.max(position - AVAILABILITY_PREFETCH_MONTHS, 0); i <= last + 1; i++) {
+      boolean needed = i <= last && !model.hasAvailability(i)
+          && !availabilityPending.contains(model.getYearMonth(i));
+      if (needed && runStart < 0) {
+        runStart = i;
+      } else if (!needed && runStart >= 0) {
+        loadAvailability(runStart, i - runStart);
+        runStart = -1;
+      }
+    }
+  }
 
-      return dateConfiguredListener == null || dateConfiguredListener.isDateSelectable(date);
+  private void loadAvailability(int firstIndex, final int monthCount) {
+    final int firstYearMonth = model.getYearMonth(firstIndex);
+    for (int i = 0; i < monthCount; i++) {
+      availabilityPending.add(firstYearMonth + i);
+    }
+    final Date firstMonth = model.getMonth(firstIndex).getDate();
+    final AvailabilityProvider provider = availabilityProvider;
+    final int generation = availabilityGeneration;
+    final Handler mainHandler = new Handler(Looper.getMainLooper());
+    availabilityExecutor.execute(new Runnable() {
+      @Override public void run() {
+        int[] days;
+        try {
+          days = provider.getAvailableDays(firstMonth, monthCount);
+          if (days == null || days.length != monthCount) {
+            throw new IllegalStateException("AvailabilityProvider must return one mask per "
+                + "month: " + monthCount + " expected, got "
+                + (days == null ? null : days.length));
+          }
+        } catch (RuntimeException e) {
+          // Not our thread to crash: leave the months unavailable but let them be asked again.
+          Logr.w(e, "Loading availability of %d months from %s failed", monthCount, firstMonth);
+          days = null;
+        }
+        final int[] loaded = days;
+        mainHandler.post(new Runnable() {
+          @Override public void run() {
+            if (generation != availabilityGeneration) {
+              return;
+            }
+            for (int i = 0; i < monthCount; i++) {
+              availabilityPending.remove(firstYearMonth + i);
+            }
+            if (loaded == null) {
+              return;
+            }
+            long start = metricsStart();
+            model.setAvailability(firstYearMonth, loaded);
+            rebindDirtyMonths();
+            recordSince(CalendarMetrics.Event.SELECTION_UPDATE, start);
+          }
+        });
+      }
+    });
   }
 
-  public void setOnDateSelectedListener(OnDateSelectedListener listener) {
-    dateListener = listener;
+  /** Set a listener to intercept clicks on calendar cells. */
+  public void setCellClickInterceptor(CellClickInterceptor listener) {
+    cellClickInterceptor = listener;
   }
 
   /**
-   * Set a listener to react to user selection of a disabled date.
+   * Install a sink for timings of model builds, month binds, measure and layout passes, touch
+   * dispatch and selection updates, or null to stop recording.
    *
-   * @param listener the listener to set, or null for no reaction
+   * @see HistogramCalendarMetrics
    */
-  public void setOnInvalidDateSelectedListener(OnInvalidDateSelectedListener listener) {
-    invalidDateListener = listener;
+  public void setMetrics(CalendarMetrics metrics) {
+    this.metrics = metrics;
   }
 
-  /**
-   * Set a listener used to discriminate between selectable and unselectable dates. Set this to
-   * disable arbitrary dates as they are rendered.
-   * <p>
-   * Important: set this before you call init().  If called afterwards,
-   * it will not be consistently applied.
-   */
-  public void setDateSelectableFilter(DateSelectableFilter listener) {
-    dateConfiguredListener = listener;
+  /** Returns a start time for {@link #recordSince}, or 0 if no metrics are installed. */
+  private long metricsStart() {
+    return metrics != null ? System.nanoTime() : 0;
   }
 
-  /** Set a listener to intercept clicks on calendar cells. */
-  public void setCellClickInterceptor(CellClickInterceptor listener) {
-    cellClickInterceptor = listener;
+  private void recordSince(CalendarMetrics.Event event, long start) {
+    if (metrics != null && start != 0) {
+      metrics.record(event, System.nanoTime() - start);
+    }
   }
 
   /**
@@ -991,6 +1524,21 @@ public class CalendarPickerView extends ListView {
     void onInvalidDateSelected(Date date);
   }
 
+  /**
+   * Supplies which days can be selected, a batch of whole months at a time.  Called on the
+   * executor given to {@link #setAvailabilityProvider(AvailabilityProvider, Executor)}, so it may
+   * block on a slow store.
+   */
+  public interface AvailabilityProvider {
+    /**
+     * Returns one mask per month for {@code monthCount} consecutive months, the first being the
+     * month containing {@code firstMonth}.  Bit {@code n - 1} of a mask is set if day {@code n}
+     * of that month can be selected.  If it throws or returns the wrong number of masks, the
+     * failure is logged and those months are asked for again the next time they're bound.
+     */
+    int[] getAvailableDays(Date firstMonth, int monthCount);
+  }
+
   /**
    * Interface used for determining the selectability of a date cell when it is configured for
    * display on the calendar.
@@ -1011,12 +1559,20 @@ public class CalendarPickerView extends ListView {
     boolean onCellClicked(Date date);
   }
 
+  /**
+   * Interface to be notified on the main thread once {@link #initAsync} has built and installed
+   * the calendar.
+   */
+  public interface OnInitializedListener {
+    void onInitialized(FluentInitializer initializer);
+  }
+
   private class DefaultOnInvalidDateSelectedListener implements OnInvalidDateSelectedListener {
     @Override public void onInvalidDateSelected(Date date) {
       String errMessage =
 //          getResources().getString(R.string.invalid_date, fullDateFormat.format(minCal.getTime()),
 //              fullDateFormat.format(maxCal.getTime()));
-            getResources().getString(R.string.not_available_txt, fullDateFormat.format(date));
+            getResources().getString(R.string.not_available_txt, model.labels.formatFullDate(date));
       Toast.makeText(getContext(), errMessage, Toast.LENGTH_SHORT).show();
     }
   }
@@ -0,0 +1,70 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Background and text colors of a calendar cell for each {@link CellStates} combination, resolved
+ * from the day background and text color selectors.  Each combination is resolved the first time
+ * it's asked for and returned as a primitive from then on, so drawing a cell needs no state
+ * matching or resource lookups.
+ */
+final class CellPalette {
+  private static final byte SOLID = 1;
+  /** The background for this combination isn't a plain color and has to be drawn. */
+  private static final byte DRAWABLE = 2;
+
+  private final Drawable background;
+  private final ColorStateList textColors;
+  private final int[] backgroundColors = new int[CellStates.COMBINATIONS];
+  private final int[] textColorsByState = new int[CellStates.COMBINATIONS];
+  /** Per combination: 0 if not resolved yet, {@link #SOLID} or {@link #DRAWABLE}. */
+  private final byte[] resolved = new byte[CellStates.COMBINATIONS];
+
+  CellPalette(Resources res, int dayBackgroundResId, int dayTextColorResId) {
+    background = res.getDrawable(
+        dayBackgroundResId != 0 ? dayBackgroundResId : R.drawable.calendar_bg_selector).mutate();
+    textColors = res.getColorStateList(dayTextColorResId);
+  }
+
+  /** Only valid if {@link #hasSolidBackground(int)}; use {@link #backgroundDrawable} otherwise. */
+  int backgroundColor(int flags) {
+    resolve(flags);
+    return backgroundColors[flags];
+  }
+
+  boolean hasSolidBackground(int flags) {
+    resolve(flags);
+    return resolved[flags] == SOLID;
+  }
+
+  /** Returns the shared background drawable, set to the state of {@code flags}. */
+  Drawable backgroundDrawable(int flags) {
+    background.setState(CellStates.stateSet(flags));
+    return background;
+  }
+
+  int textColor(int flags) {
+    resolve(flags);
+    return textColorsByState[flags];
+  }
+
+  private void resolve(int flags) {
+    if (resolved[flags] != 0) {
+      return;
+    }
+    int[] stateSet = CellStates.stateSet(flags);
+    textColorsByState[flags] = textColors.getColorForState(stateSet, textColors.getDefaultColor());
+    background.setState(stateSet);
+    Drawable current = background.getCurrent();
+    if (current instanceof ColorDrawable) {
+      backgroundColors[flags] = ((ColorDrawable) current).getColor();
+      resolved[flags] = SOLID;
+    } else {
+      resolved[flags] = DRAWABLE;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+/**
+ * Packs the drawable state of a calendar cell into an int and maps each combination to its
+ * drawable state array.  Arrays are built the first time a combination is asked for and shared
+ * from then on, so resolving a cell's state never merges or allocates.
+ */
+final class CellStates {
+  static final int SELECTABLE = 1;
+  static final int CURRENT_MONTH = 1 << 1;
+  static final int TODAY = 1 << 2;
+  static final int CLOSED = 1 << 3;
+  static final int HIGHLIGHTED = 1 << 4;
+  /** Two bits holding the {@link RangeState} ordinal. */
+  private static final int RANGE_SHIFT = 5;
+  static final int RANGE_MASK = 3 << RANGE_SHIFT;
+  // These three are View states; CalendarCellView applies them to View itself.
+  static final int SELECTED = 1 << 7;
+  static final int ENABLED = 1 << 8;
+  static final int PRESSED = 1 << 9;
+  static final int VIEW_STATES = SELECTED | ENABLED | PRESSED;
+  /** Three bits holding the highlight category, 0 for none; see {@link DayCategories}. */
+  private static final int CATEGORY_SHIFT = 10;
+  private static final int CATEGORY_MASK = 7 << CATEGORY_SHIFT;
+  private static final int FLAG_COUNT = 13;
+  /** Number of distinct flag values. */
+  static final int COMBINATIONS = 1 << FLAG_COUNT;
+
+  private static final int[][] STATE_SETS = new int[COMBINATIONS][];
+  private static final int[] CATEGORY_STATES = {
+      R.attr.state_highlight_category_1, R.attr.state_highlight_category_2,
+      R.attr.state_highlight_category_3, R.attr.state_highlight_category_4,
+      R.attr.state_highlight_category_5, R.attr.state_highlight_category_6,
+      R.attr.state_highlight_category_7
+  };
+
+  private CellStates() {
+    // No instances.
+  }
+
+  /** Returns the calendar-specific flags of {@code cell}, without the View states. */
+  static int of(MonthCellDescriptor cell) {
+    int flags = cell.getRangeState().ordinal() << RANGE_SHIFT
+        | cell.getHighlightCategory() << CATEGORY_SHIFT;
+    if (cell.isSelectable()) {
+      flags |= SELECTABLE;
+    }
+    if (cell.isCurrentMonth()) {
+      flags |= CURRENT_MONTH;
+    }
+    if (cell.isToday()) {
+      flags |= TODAY;
+    }
+    if (cell.isClosed()) {
+      flags |= CLOSED;
+    }
+    if (cell.isHighlighted()) {
+      flags |= HIGHLIGHTED;
+    }
+    return flags;
+  }
+
+  /** Returns the flags of {@code cell} plus the enabled and selected states its view gets. */
+  static int withViewStates(MonthCellDescriptor cell) {
+    int flags = of(cell);
+    if (cell.isCurrentMonth()) {
+      flags |= ENABLED;
+    }
+    if (cell.isSelected()) {
+      flags |= SELECTED;
+    }
+    return flags;
+  }
+
+  static int withRangeState(int flags, RangeState rangeState) {
+    return flags & ~RANGE_MASK | rangeState.ordinal() << RANGE_SHIFT;
+  }
+
+  /** Returns the shared drawable state array for {@code flags}.  Callers must not modify it. */
+  static int[] stateSet(int flags) {
+    int[] stateSet = STATE_SETS[flags];
+    if (stateSet == null) {
+      stateSet = buildStateSet(flags);
+      STATE_SETS[flags] = stateSet;
+    }
+    return stateSet;
+  }
+
+  private static int[] buildStateSet(int flags) {
+    int[] states = new int[FLAG_COUNT];
+    int size = 0;
+    if ((flags & SELECTABLE) != 0) {
+      states[size++] = R.attr.state_selectable;
+    }
+    if ((flags & CURRENT_MONTH) != 0) {
+      states[size++] = R.attr.state_current_month;
+    }
+    if ((flags & TODAY) != 0) {
+      states[size++] = R.attr.state_today;
+    }
+    if ((flags & CLOSED) != 0) {
+      states[size++] = R.attr.state_day_closed;
+    }
+    if ((flags & HIGHLIGHTED) != 0) {
+      states[size++] = R.attr.state_highlighted;
+    }
+    int category = (flags & CATEGORY_MASK) >> CATEGORY_SHIFT;
+    if (category != 0) {
+      states[size++] = CATEGORY_STATES[category - 1];
+    }
+    switch (RangeState.values()[(flags & RANGE_MASK) >> RANGE_SHIFT]) {
+      case FIRST:
+        states[size++] = R.attr.state_range_first;
+        break;
+      case MIDDLE:
+        states[size++] = R.attr.state_range_middle;
+        break;
+      case LAST:
+        states[size++] = R.attr.state_range_last;
+        break;
+      default:
+        break;
+    }
+    if ((flags & SELECTED) != 0) {
+      states[size++] = android.R.attr.state_selected;
+    }
+    if ((flags & ENABLED) != 0) {
+      states[size++] = android.R.attr.state_enabled;
+    }
+    if ((flags & PRESSED) != 0) {
+      states[size++] = android.R.attr.state_pressed;
+    }
+    int[] stateSet = new int[size];
+    System.arraycopy(states, 0, stateSet, 0, size);
+    return stateSet;
+  }
+}
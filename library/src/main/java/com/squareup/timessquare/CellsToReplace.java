@@ -1,8 +0,0 @@
-package com.squareup.timessquare;
-
-/**
- * Created by jmann on 12/16/14.
- */
-public enum CellsToReplace {
-    First, Last, Both
-}
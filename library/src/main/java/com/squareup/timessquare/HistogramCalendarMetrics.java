@@ -0,0 +1,135 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link CalendarMetrics} that counts each event's durations into power-of-two nanosecond buckets.
+ * Recording is lock-free and allocation-free, so it's cheap enough to leave installed in
+ * production builds.  Read the results with {@link #get(CalendarMetrics.Event)}.
+ */
+public final class HistogramCalendarMetrics implements CalendarMetrics {
+  /** Bucket {@code i} counts durations in {@code [2^(i-1), 2^i)} ns; bucket 0 counts zero. */
+  static final int BUCKET_COUNT = 64;
+  private static final int COUNT = BUCKET_COUNT;
+  private static final int TOTAL = BUCKET_COUNT + 1;
+  private static final int MAX = BUCKET_COUNT + 2;
+  private static final int SLOTS = BUCKET_COUNT + 3;
+
+  /** Buckets, count, total and max of each event, {@link #SLOTS} per event. */
+  private final AtomicLongArray data = new AtomicLongArray(Event.values().length * SLOTS);
+
+  @Override public void record(Event event, long durationNanos) {
+    if (durationNanos < 0) {
+      durationNanos = 0;
+    }
+    int base = event.ordinal() * SLOTS;
+    int bucket = Math.min(64 - Long.numberOfLeadingZeros(durationNanos), BUCKET_COUNT - 1);
+    data.incrementAndGet(base + bucket);
+    data.incrementAndGet(base + COUNT);
+    data.addAndGet(base + TOTAL, durationNanos);
+    long max;
+    do {
+      max = data.get(base + MAX);
+    } while (durationNanos > max && !data.compareAndSet(base + MAX, max, durationNanos));
+  }
+
+  /** Returns a snapshot of what has been recorded for {@code event}. */
+  public Histogram get(Event event) {
+    int base = event.ordinal() * SLOTS;
+    long[] buckets = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets[i] = data.get(base + i);
+    }
+    return new Histogram(event, buckets, data.get(base + COUNT), data.get(base + TOTAL),
+        data.get(base + MAX));
+  }
+
+  /** Clears everything recorded so far. */
+  public void reset() {
+    for (int i = 0; i < data.length(); i++) {
+      data.set(i, 0);
+    }
+  }
+
+  @Override public String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (Event event : Event.values()) {
+      builder.append(get(event)).append('\n');
+    }
+    return builder.toString();
+  }
+
+  /** Recorded durations of one event. */
+  public static final class Histogram {
+    private final Event event;
+    private final long[] buckets;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    Histogram(Event event, long[] buckets, long count, long totalNanos, long maxNanos) {
+      this.event = event;
+      this.buckets = buckets;
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+    }
+
+    public Event getEvent() {
+      return event;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    public long getMeanNanos() {
+      return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Count of durations in bucket {@code index}: {@code [2^(index-1), 2^index)} ns, or zero for
+     * index 0.  The last bucket also holds everything longer.
+     */
+    public long getBucketCount(int index) {
+      return buckets[index];
+    }
+
+    public int getNumBuckets() {
+      return buckets.length;
+    }
+
+    /**
+     * Returns an upper bound for the duration under which {@code percentile} (0-100) of the
+     * recorded durations fall, accurate to a factor of two.
+     */
+    public long getPercentileNanos(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(count * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= rank && seen > 0) {
+          return i == 0 ? 0 : Math.min((1L << i) - 1, maxNanos);
+        }
+      }
+      return maxNanos;
+    }
+
+    @Override public String toString() {
+      return String.format("%s count=%d mean=%dns p50=%dns p99=%dns max=%dns", event, count,
+          getMeanNanos(), getPercentileNanos(50), getPercentileNanos(99), maxNanos);
+    }
+  }
+}
@@ -15,4 +15,9 @@ final class Logr {
       d(String.format(message, args));
     }
   }
+
+  /** Logs a failure the calendar recovered from; unlike {@link #d}, also in release builds. */
+  public static void w(Throwable t, String message, Object... args) {
+    Log.w("TimesSquare", String.format(message, args), t);
+  }
 }
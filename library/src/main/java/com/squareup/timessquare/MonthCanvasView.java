@@ -0,0 +1,302 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+import java.util.List;
+
+/**
+ * Draws a whole month (title bar, weekday header, day cells and grid lines) on one canvas instead
+ * of inflating a {@link MonthView} with 49 child views.  Cells get the same drawable states as
+ * {@link CalendarCellView}, so the day background and text color selectors apply unchanged, and
+ * touches are mapped to cells arithmetically.
+ * <p>
+ * Enabled with the {@code canvasMonths} attribute of {@link CalendarPickerView}.
+ */
+public class MonthCanvasView extends View implements MonthRenderer {
+  /** Same half-pixel nudge {@link CalendarGridView} applies to its grid lines. */
+  private static final float FLOAT_FUDGE = 0.5f;
+  private static final int MAX_WEEKS = 6;
+  private static final String[] DAY_NUMBERS = new String[32];
+
+  static {
+    for (int i = 1; i < DAY_NUMBERS.length; i++) {
+      DAY_NUMBERS[i] = Integer.toString(i);
+    }
+  }
+
+  private final Paint dividerPaint = new Paint();
+  private final Paint titleBackgroundPaint = new Paint();
+  private final Paint closedSwatchPaint = new Paint();
+  private final Paint titlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint closedNotePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint headerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint dayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final String closedNote;
+  private String[] weekdayNames;
+
+  private final int titleBarHeight;
+  private final int titleMargin;
+  private final int titleBottomMargin;
+  private final int swatchSize;
+  private final int swatchMargin;
+  private final int headerPaddingBottom;
+  private final int monthBottomMargin;
+
+  private final Paint cellPaint = new Paint();
+  private CellPalette palette;
+  private boolean displayHeader;
+  private MonthView.Listener listener;
+
+  private String title;
+  private List<List<MonthCellDescriptor>> cells;
+  private int numRows;
+  private boolean displayOnly;
+  private boolean fixedHeight;
+  /** {@link CellStates} flags of each cell, indexed by {@code week * 7 + column}. */
+  private final int[] cellStates = new int[MAX_WEEKS * 7];
+  private int pressedCell = -1;
+
+  private int cellSize;
+  private int headerHeight;
+
+  public static MonthCanvasView create(Context context, String[] weekdayNames,
+      MonthView.Listener listener, int dividerColor, CellPalette palette, boolean displayHeader,
+      int headerTextColor) {
+    MonthCanvasView view = new MonthCanvasView(context);
+    view.dividerPaint.setColor(dividerColor);
+    view.palette = palette;
+    view.displayHeader = displayHeader;
+    view.headerPaint.setColor(headerTextColor);
+    view.listener = listener;
+    view.weekdayNames = weekdayNames;
+    return view;
+  }
+
+  private MonthCanvasView(Context context) {
+    super(context);
+    Resources res = context.getResources();
+    titleBarHeight = dp(res, 40);
+    titleMargin = dp(res, 10);
+    swatchSize = dp(res, 10);
+    swatchMargin = dp(res, 5);
+    titleBottomMargin = res.getDimensionPixelSize(R.dimen.calendar_month_title_bottommargin);
+    headerPaddingBottom = res.getDimensionPixelSize(R.dimen.calendar_day_headers_paddingbottom);
+    monthBottomMargin = res.getDimensionPixelSize(R.dimen.calendar_month_topmargin);
+    closedNote = res.getString(R.string.days_closed_txt);
+
+    float mediumText = res.getDimension(R.dimen.calendar_text_medium);
+    titleBackgroundPaint.setColor(res.getColor(R.color.calendar_title_background));
+    closedSwatchPaint.setColor(res.getColor(R.color.not_available_background));
+    titlePaint.setColor(res.getColor(android.R.color.white));
+    titlePaint.setTextSize(mediumText);
+    titlePaint.setTypeface(Typeface.DEFAULT_BOLD);
+    closedNotePaint.setColor(res.getColor(android.R.color.white));
+    closedNotePaint.setTextSize(res.getDimension(R.dimen.calendar_text_small));
+    closedNotePaint.setTextAlign(Paint.Align.RIGHT);
+    headerPaint.setTextSize(mediumText);
+    headerPaint.setTypeface(Typeface.DEFAULT_BOLD);
+    headerPaint.setTextAlign(Paint.Align.CENTER);
+    dayPaint.setTextSize(mediumText);
+    dayPaint.setTextAlign(Paint.Align.CENTER);
+  }
+
+  private static int dp(Resources res, int dp) {
+    return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp,
+        res.getDisplayMetrics());
+  }
+
+  @Override public void init(MonthDescriptor month, List<List<MonthCellDescriptor>> cells,
+      boolean displayOnly, Typeface titleTypeface, Typeface dateTypeface) {
+    Logr.d("Initializing MonthCanvasView (%d) for %s", System.identityHashCode(this), month);
+    title = month.getLabel();
+    this.cells = cells;
+    this.displayOnly = displayOnly;
+    pressedCell = -1;
+    if (titleTypeface != null) {
+      titlePaint.setTypeface(titleTypeface);
+    }
+    if (dateTypeface != null) {
+      headerPaint.setTypeface(dateTypeface);
+      dayPaint.setTypeface(dateTypeface);
+    }
+
+    for (int week = 0; week < cells.size(); week++) {
+      List<MonthCellDescriptor> weekCells = cells.get(week);
+      for (int c = 0; c < 7; c++) {
+        cellStates[week * 7 + c] = CellStates.withViewStates(weekCells.get(c));
+      }
+    }
+    if (numRows != cells.size()) {
+      numRows = cells.size();
+      requestLayout();
+    }
+    invalidate();
+  }
+
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    int width = MeasureSpec.getSize(widthMeasureSpec);
+    cellSize = width / 7;
+    Paint.FontMetricsInt metrics = headerPaint.getFontMetricsInt();
+    headerHeight = displayHeader ? metrics.descent - metrics.ascent + headerPaddingBottom : 0;
+    int rows = fixedHeight ? MAX_WEEKS : numRows;
+    int height = titleBarHeight + titleBottomMargin + headerHeight + rows * cellSize
+        + monthBottomMargin;
+    setMeasuredDimension(width, height);
+  }
+
+  @Override public void setFixedHeight(boolean fixedHeight) {
+    if (this.fixedHeight != fixedHeight) {
+      this.fixedHeight = fixedHeight;
+      requestLayout();
+    }
+  }
+
+  @Override public int getWeeksTop() {
+    return weeksTop();
+  }
+
+  @Override public int getWeekRowHeight() {
+    return cellSize;
+  }
+
+  private int gridTop() {
+    return titleBarHeight + titleBottomMargin;
+  }
+
+  private int weeksTop() {
+    return gridTop() + headerHeight;
+  }
+
+  @Override protected void onDraw(Canvas canvas) {
+    if (cells == null) {
+      return;
+    }
+    int width = getWidth();
+    canvas.drawRect(0, 0, width, titleBarHeight, titleBackgroundPaint);
+    float titleBaseline = centeredBaseline(titlePaint, titleBarHeight / 2f);
+    canvas.drawText(title, titleMargin, titleBaseline, titlePaint);
+    float noteRight = width - titleMargin;
+    float noteBaseline = centeredBaseline(closedNotePaint, titleBarHeight / 2f);
+    canvas.drawText(closedNote, noteRight, noteBaseline, closedNotePaint);
+    float swatchRight = noteRight - closedNotePaint.measureText(closedNote) - swatchMargin;
+    float swatchTop = (titleBarHeight - swatchSize) / 2f;
+    canvas.drawRect(swatchRight - swatchSize, swatchTop, swatchRight, swatchTop + swatchSize,
+        closedSwatchPaint);
+
+    int gridRight = cellSize * 7;
+    if (displayHeader) {
+      float baseline = centeredBaseline(headerPaint,
+          gridTop() + (headerHeight - headerPaddingBottom) / 2f);
+      for (int c = 0; c < 7; c++) {
+        canvas.drawText(weekdayNames[c], c * cellSize + cellSize / 2f, baseline, headerPaint);
+      }
+      canvas.drawLine(0, weeksTop() - 1, gridRight - 2, weeksTop() - 1, dividerPaint);
+    }
+
+    int top = weeksTop();
+    for (int week = 0; week < numRows; week++, top += cellSize) {
+      List<MonthCellDescriptor> weekCells = cells.get(week);
+      float baseline = centeredBaseline(dayPaint, top + cellSize / 2f);
+      for (int c = 0; c < 7; c++) {
+        int index = week * 7 + c;
+        int flags = index == pressedCell ? cellStates[index] | CellStates.PRESSED
+            : cellStates[index];
+        int left = c * cellSize;
+        if (palette.hasSolidBackground(flags)) {
+          cellPaint.setColor(palette.backgroundColor(flags));
+          canvas.drawRect(left, top, left + cellSize, top + cellSize, cellPaint);
+        } else {
+          Drawable background = palette.backgroundDrawable(flags);
+          background.setBounds(left, top, left + cellSize, top + cellSize);
+          background.draw(canvas);
+        }
+        dayPaint.setColor(palette.textColor(flags));
+        canvas.drawText(DAY_NUMBERS[weekCells.get(c).getValue()], left + cellSize / 2f, baseline,
+            dayPaint);
+      }
+      canvas.drawLine(0, top + cellSize - 1, gridRight - 2, top + cellSize - 1, dividerPaint);
+    }
+
+    // Left border and each cell's right border.
+    float gridBottom = weeksTop() + numRows * cellSize;
+    canvas.drawLine(FLOAT_FUDGE, weeksTop(), FLOAT_FUDGE, gridBottom, dividerPaint);
+    for (int c = 1; c <= 7; c++) {
+      float x = c * cellSize - FLOAT_FUDGE;
+      canvas.drawLine(x, weeksTop(), x, gridBottom, dividerPaint);
+    }
+  }
+
+  private static float centeredBaseline(Paint paint, float centerY) {
+    return centerY - (paint.descent() + paint.ascent()) / 2f;
+  }
+
+  /** Returns the index of the current-month cell under ({@code x}, {@code y}), or -1. */
+  int cellAt(float x, float y) {
+    if (cells == null || cellSize == 0 || x < 0 || y < weeksTop()) {
+      return -1;
+    }
+    int column = (int) x / cellSize;
+    int week = (int) (y - weeksTop()) / cellSize;
+    if (column >= 7 || week >= numRows) {
+      return -1;
+    }
+    return cells.get(week).get(column).isCurrentMonth() ? week * 7 + column : -1;
+  }
+
+  @Override public MonthCellDescriptor getCellAt(float x, float y) {
+    int index = cellAt(x, y);
+    return index < 0 ? null : cell(index);
+  }
+
+  private MonthCellDescriptor cell(int index) {
+    return cells.get(index / 7).get(index % 7);
+  }
+
+  @Override public boolean onTouchEvent(MotionEvent event) {
+    if (displayOnly) {
+      return false;
+    }
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_DOWN:
+        int touched = cellAt(event.getX(), event.getY());
+        if (touched < 0) {
+          return false;
+        }
+        setPressedCell(touched);
+        return true;
+      case MotionEvent.ACTION_MOVE:
+        if (pressedCell >= 0 && cellAt(event.getX(), event.getY()) != pressedCell) {
+          setPressedCell(-1);
+        }
+        return true;
+      case MotionEvent.ACTION_UP:
+        int clicked = pressedCell;
+        setPressedCell(-1);
+        if (clicked >= 0 && listener != null) {
+          listener.handleClick(cell(clicked));
+        }
+        return true;
+      case MotionEvent.ACTION_CANCEL:
+        setPressedCell(-1);
+        return true;
+      default:
+        return true;
+    }
+  }
+
+  private void setPressedCell(int index) {
+    if (index == pressedCell) {
+      return;
+    }
+    pressedCell = index;
+    invalidate();
+  }
+}
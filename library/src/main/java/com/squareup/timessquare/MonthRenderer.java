@@ -0,0 +1,29 @@
+// Copyright 2015 Square, Inc.
+package com.squareup.timessquare;
+
+import android.graphics.Typeface;
+import java.util.List;
+
+/**
+ * A view that shows one month of a {@link CalendarPickerView}: either the {@link MonthView} widget
+ * tree or the single-canvas {@link MonthCanvasView}.
+ */
+interface MonthRenderer {
+  void init(MonthDescriptor month, List<List<MonthCellDescriptor>> cells, boolean displayOnly,
+      Typeface titleTypeface, Typeface dateTypeface);
+
+  /**
+   * Returns the cell of the bound month under ({@code x}, {@code y}), in this view's coordinates,
+   * or null if there's no day of the month there.
+   */
+  MonthCellDescriptor getCellAt(float x, float y);
+
+  /** Whether months with fewer than six weeks keep the height of a six-week month. */
+  void setFixedHeight(boolean fixedHeight);
+
+  /** Top of the first week row in this view's coordinates, once laid out. */
+  int getWeeksTop();
+
+  /** Height of one week row, or 0 if this view hasn't been laid out. */
+  int getWeekRowHeight();
+}
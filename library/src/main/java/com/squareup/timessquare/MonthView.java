@@ -5,20 +5,20 @@ import android.content.Context;
 import android.graphics.Typeface;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
+import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
 import android.widget.TextView;
-import java.text.DateFormat;
-import java.util.Calendar;
 import java.util.List;
 
-public class MonthView extends LinearLayout {
+public class MonthView extends LinearLayout implements MonthRenderer {
   TextView title;
   CalendarGridView grid;
   private Listener listener;
+  private boolean fixedHeight;
 
   public static MonthView create(ViewGroup parent, LayoutInflater inflater,
-      DateFormat weekdayNameFormat, Listener listener, Calendar today, int dividerColor,
+      String[] weekdayNames, Listener listener, int dividerColor,
       int dayBackgroundResId, int dayTextColorResId, boolean displayHeader,
       int headerTextColor) {
 
@@ -32,17 +32,12 @@ public class MonthView extends LinearLayout {
       view.setDayBackground(dayBackgroundResId);
     }
 
-    final int originalDayOfWeek = today.get(Calendar.DAY_OF_WEEK);
-
     // set days of week (SUN, MON, TUE, ... ) in header CalendarRowView
-    int firstDayOfWeek = today.getFirstDayOfWeek();
     final CalendarRowView headerRow = (CalendarRowView) view.grid.getChildAt(0);
     for (int offset = 0; offset < 7; offset++) {
-      today.set(Calendar.DAY_OF_WEEK, firstDayOfWeek + offset);
       final TextView textView = (TextView) headerRow.getChildAt(offset);
-      textView.setText(weekdayNameFormat.format(today.getTime()));      // set current day of month
+      textView.setText(weekdayNames[offset]);
     }
-    today.set(Calendar.DAY_OF_WEEK, originalDayOfWeek);                 // set current day to first day of week
     view.listener = listener;
     return view;
   }
@@ -57,14 +52,13 @@ public class MonthView extends LinearLayout {
     grid = (CalendarGridView) findViewById(R.id.calendar_grid);
   }
 
-  public void init(MonthDescriptor month, List<List<MonthCellDescriptor>> cells,
+  @Override public void init(MonthDescriptor month, List<List<MonthCellDescriptor>> cells,
       boolean displayOnly, Typeface titleTypeface, Typeface dateTypeface) {
     Logr.d("Initializing MonthView (%d) for %s", System.identityHashCode(this), month);
-    long start = System.currentTimeMillis();
     title.setText(month.getLabel());
 
     final int numRows = cells.size();
-    grid.setNumRows(numRows);
+    grid.setNumRows(fixedHeight ? 6 : numRows);
     for (int i = 0; i < 6; i++) {
       CalendarRowView weekRow = (CalendarRowView) grid.getChildAt(i + 1);
       weekRow.setListener(listener);
@@ -80,25 +74,15 @@ public class MonthView extends LinearLayout {
             cellView.setText(cellDate);
           }
 
-          cellView.setEnabled(cell.isCurrentMonth());
           cellView.setClickable(!displayOnly);
-
-          cellView.setSelectable(cell.isSelectable());
-          cellView.setSelected(cell.isSelected());
-          cellView.setCurrentMonth(cell.isCurrentMonth());
-          cellView.setToday(cell.isToday());
-          cellView.setClosed(cell.isClosed());
-          cellView.setRangeState(cell.getRangeState());
-          cellView.setHighlighted(cell.isHighlighted());
-
-          // clear prior cell background
-          cellView.setBackgroundResource(R.drawable.calendar_bg_selector);
-          cellView.setTextColor(getResources().getColorStateList(R.color.calendar_text_selector));
+          // Enabled and selected go in with the rest, so the drawable state is refreshed once.
+          cellView.setCellState(CellStates.withViewStates(cell));
 
           cellView.setTag(cell);
         }
       } else {
-        weekRow.setVisibility(GONE);
+        // Invisible rows still take up space.
+        weekRow.setVisibility(fixedHeight ? INVISIBLE : GONE);
       }
     }
 
@@ -108,8 +92,34 @@ public class MonthView extends LinearLayout {
     if (dateTypeface != null) {
       grid.setTypeface(dateTypeface);
     }
+  }
+
+  @Override public MonthCellDescriptor getCellAt(float x, float y) {
+    View firstWeek = grid.getChildAt(1);
+    int rowHeight = firstWeek.getHeight();
+    float weeksY = y - grid.getTop() - firstWeek.getTop();
+    if (rowHeight == 0 || weeksY < 0) {
+      return null;
+    }
+    // Week rows are all the same height, so the row is found by division.
+    int week = (int) (weeksY / rowHeight);
+    if (week >= grid.getChildCount() - 1 || grid.getChildAt(week + 1).getVisibility() != VISIBLE) {
+      return null;
+    }
+    CalendarRowView row = (CalendarRowView) grid.getChildAt(week + 1);
+    return row.getCellAt(x - grid.getLeft() - row.getLeft());
+  }
+
+  @Override public void setFixedHeight(boolean fixedHeight) {
+    this.fixedHeight = fixedHeight;
+  }
 
-    Logr.d("MonthView.init took %d ms", System.currentTimeMillis() - start);
+  @Override public int getWeeksTop() {
+    return grid.getTop() + grid.getChildAt(1).getTop();
+  }
+
+  @Override public int getWeekRowHeight() {
+    return grid.getChildAt(1).getHeight();
   }
 
   public void setDividerColor(int color) {
@@ -137,10 +147,6 @@ public class MonthView extends LinearLayout {
   }
 
   public interface Listener {
-    void handleClick(MonthCellDescriptor cell, boolean isRange, RangeState rangeState);
-
-    void handleSlideUpdate(RangeState cellState, MonthCellDescriptor cell);
-
-    void updateCellData(int month, int week, int day);
+    void handleClick(MonthCellDescriptor cell);
   }
 }